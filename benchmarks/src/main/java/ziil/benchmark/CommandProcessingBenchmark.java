@@ -0,0 +1,82 @@
+package ziil.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ziil.core.Command;
+import ziil.core.Maze;
+import ziil.core.Parser;
+import ziil.core.Session;
+import ziil.generator.RecursiveBacktrackerGenerator;
+
+/**
+ * Measures parsing and processing one line of player input, including writing the answer,
+ * and parsing alone from the raw bytes the server receives
+ * @author Manuel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandProcessingBenchmark {
+	private static final String[] INPUT_LINES = {
+			"go straight", "go left", "go right", "go back", "evaluate", "help", "go", "go up", "dance" };
+
+	@Param({ "5", "64", "256", "1024", "4096" })
+	private int size;
+
+	@Param({ "1" })
+	private long seed;
+
+	private byte[][] inputBytes;
+	private Maze maze;
+	private Session session;
+	private StringBuilder output;
+	private int nextLine;
+
+	@Setup
+	public void setUp() {
+		maze = new Maze(size, new RecursiveBacktrackerGenerator(), seed);
+		maze.getDistanceToEnd(maze.getStartingRoom());
+		session = new Session(maze);
+		output = new StringBuilder();
+		inputBytes = new byte[INPUT_LINES.length][];
+		for (int i = 0; i < INPUT_LINES.length; i++) {
+			inputBytes[i] = INPUT_LINES[i].getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Benchmark
+	public StringBuilder processCommand() {
+		String line = INPUT_LINES[nextLine];
+		nextLine = (nextLine + 1) % INPUT_LINES.length;
+
+		output.setLength(0);
+		if (session.processCommand(Parser.parse(line), output)) {
+			session = new Session(maze);
+		}
+		return output;
+	}
+
+	@Benchmark
+	public Command parse() {
+		byte[] line = inputBytes[nextLine];
+		nextLine = (nextLine + 1) % INPUT_LINES.length;
+		return Parser.parse(line, 0, line.length);
+	}
+}
@@ -0,0 +1,91 @@
+package ziil.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Command;
+import ziil.core.Maze;
+import ziil.core.Parser;
+import ziil.core.RelativeDirection;
+import ziil.core.Session;
+import ziil.generator.RecursiveBacktrackerGenerator;
+
+/**
+ * Measures the direction conversions and the move/describe path of a session.
+ * Run it with "-prof gc": gc.alloc.rate.norm should stay at 0 bytes per operation for every benchmark
+ * @author Manuel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DirectionBenchmark {
+	private static final AbsoluteDirection[] ABSOLUTE_DIRECTIONS = AbsoluteDirection.values();
+	private static final RelativeDirection[] RELATIVE_DIRECTIONS = RelativeDirection.values();
+	private static final int MAZE_SIZE = 64;
+
+	private Maze maze;
+	private Session session;
+	private Command[] moves;
+	private StringBuilder output;
+	private int nextMove;
+
+	@Setup
+	public void setUp() {
+		maze = new Maze(MAZE_SIZE, new RecursiveBacktrackerGenerator(), 1);
+		session = new Session(maze);
+		moves = new Command[RELATIVE_DIRECTIONS.length];
+		for (int i = 0; i < RELATIVE_DIRECTIONS.length; i++) {
+			moves[i] = Parser.parse("go " + RELATIVE_DIRECTIONS[i]);
+		}
+		output = new StringBuilder(256);
+	}
+
+	@Benchmark
+	public void toAbsoluteDirection(Blackhole blackhole) {
+		for (RelativeDirection relativeDirection : RELATIVE_DIRECTIONS) {
+			for (AbsoluteDirection absoluteDirection : ABSOLUTE_DIRECTIONS) {
+				blackhole.consume(relativeDirection.toAbsoluteDirection(absoluteDirection));
+			}
+		}
+	}
+
+	@Benchmark
+	public void fromAbsoluteDirections(Blackhole blackhole) {
+		for (AbsoluteDirection origin : ABSOLUTE_DIRECTIONS) {
+			for (AbsoluteDirection destination : ABSOLUTE_DIRECTIONS) {
+				blackhole.consume(RelativeDirection.fromAbsoluteDirections(origin, destination));
+			}
+		}
+	}
+
+	/**
+	 * One move in a random walk, including the description of the next room
+	 */
+	@Benchmark
+	public StringBuilder moveAndDescribe() {
+		Command move = moves[nextMove];
+		nextMove = (nextMove + 1) & 3;
+
+		output.setLength(0);
+		if (session.processCommand(move, output)) {
+			session = new Session(maze);
+		}
+		return output;
+	}
+}
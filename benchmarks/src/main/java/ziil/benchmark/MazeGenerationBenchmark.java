@@ -0,0 +1,53 @@
+package ziil.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ziil.core.Maze;
+import ziil.generator.GeneratorType;
+import ziil.generator.MazeGenerator;
+
+/**
+ * Measures how long it takes to generate mazes of different sizes with every generator
+ * @author Manuel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MazeGenerationBenchmark {
+	@Param({ "5", "64", "256", "1024", "4096" })
+	private int size;
+
+	@Param({ "backtracker", "kruskal", "prim", "eller", "wilson", "binary-tree", "sidewinder", "parallel" })
+	private String generator;
+
+	@Param({ "1" })
+	private long seed;
+
+	private MazeGenerator mazeGenerator;
+
+	@Setup
+	public void setUp() {
+		mazeGenerator = GeneratorType.fromName(generator).create();
+	}
+
+	@Benchmark
+	public Maze generate() {
+		return new Maze(size, mazeGenerator, seed);
+	}
+}
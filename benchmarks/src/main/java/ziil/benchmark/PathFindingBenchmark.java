@@ -0,0 +1,123 @@
+package ziil.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ziil.core.DistanceOracle;
+import ziil.core.Maze;
+import ziil.core.PathFinder;
+import ziil.core.Room;
+import ziil.core.SearchStrategy;
+import ziil.core.UnweightedPathFinder;
+import ziil.generator.BraidGenerator;
+import ziil.generator.MazeGenerator;
+import ziil.generator.RecursiveBacktrackerGenerator;
+import ziil.generator.WeightedDoorGenerator;
+
+/**
+ * Measures how long it takes to find the shortest path between two random rooms with every path finding strategy.
+ * The strategies are the ones of {@link SearchStrategy}, plus "bfs" and "bidirectional-bfs" of the
+ * {@link UnweightedPathFinder}, "distance-field" for {@link Maze#getDistanceToEnd(Room)} and "tree-oracle" for the
+ * {@link DistanceOracle}.
+ * With a dead end removal above 0 the maze has loops (see {@link BraidGenerator}), and with a max door weight above 1
+ * the doors have random weights (see {@link WeightedDoorGenerator}). The strategies of {@link SearchStrategy} and the
+ * tree oracle then find the cheapest path, while the unweighted ones still count doors
+ * @author Manuel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PathFindingBenchmark {
+	private static final int ROOM_COUNT = 1024;
+
+	@Param({ "5", "64", "256", "1024", "4096" })
+	private int size;
+
+	@Param({ "1" })
+	private long seed;
+
+	@Param({ "0" })
+	private double deadEndRemoval;
+
+	@Param({ "1" })
+	private int maxDoorWeight;
+
+	@Param({ "dijkstra", "a-star", "corridor-jump", "bfs", "bidirectional-bfs", "distance-field", "tree-oracle" })
+	private String strategy;
+
+	private Maze maze;
+	private Room[] rooms;
+	private PathFinder pathFinder;
+	private UnweightedPathFinder unweightedPathFinder;
+	private DistanceOracle distanceOracle;
+	private SearchStrategy searchStrategy;
+	private int nextRoom;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		MazeGenerator generator = new RecursiveBacktrackerGenerator();
+		if (deadEndRemoval > 0) {
+			generator = new BraidGenerator(generator, deadEndRemoval);
+		}
+		if (maxDoorWeight > 1) {
+			generator = new WeightedDoorGenerator(generator, maxDoorWeight);
+		}
+		maze = new Maze(size, generator, seed);
+		SplittableRandom random = new SplittableRandom(seed);
+		rooms = new Room[ROOM_COUNT];
+		for (int i = 0; i < ROOM_COUNT; i++) {
+			rooms[i] = maze.getRoom(random.nextInt(size), random.nextInt(size));
+		}
+
+		pathFinder = new PathFinder();
+		unweightedPathFinder = new UnweightedPathFinder(maze);
+		if ("tree-oracle".equals(strategy)) {
+			distanceOracle = new DistanceOracle(maze);
+		}
+		for (SearchStrategy candidate : SearchStrategy.values()) {
+			if (candidate.toString().equals(strategy)) {
+				searchStrategy = candidate;
+			}
+		}
+		// The distance field is calculated on the first call, which isn't part of the measurement
+		maze.getDistanceToEnd(maze.getStartingRoom());
+	}
+
+	@Benchmark
+	public int findPath() {
+		Room startRoom = rooms[nextRoom];
+		Room destinationRoom = "distance-field".equals(strategy) ? maze.getEndRoom() : rooms[nextRoom + 1];
+		nextRoom = (nextRoom + 2) % ROOM_COUNT;
+
+		if (searchStrategy != null) {
+			return pathFinder.calculateShortestPathLength(startRoom, destinationRoom, searchStrategy).get();
+		}
+		switch (strategy) {
+			case "bfs":
+				return unweightedPathFinder.calculateShortestPathLengths(startRoom)[(int)destinationRoom.getCell()];
+			case "bidirectional-bfs":
+				return unweightedPathFinder.calculateShortestPathLength(startRoom, destinationRoom);
+			case "tree-oracle":
+				return distanceOracle.getDistance(startRoom, destinationRoom);
+			default:
+				return maze.getDistanceToEnd(startRoom);
+		}
+	}
+}
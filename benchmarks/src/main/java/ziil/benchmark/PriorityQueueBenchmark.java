@@ -0,0 +1,88 @@
+package ziil.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ziil.util.PriorityQueue;
+import ziil.util.RadixPriorityQueue;
+
+/**
+ * Measures a Dijkstra-like workload on the priority queues: items are enqueued with increasing priorities,
+ * some of them are enqueued again with a lower priority, and everything is dequeued
+ * @author Manuel
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PriorityQueueBenchmark {
+	@Param({ "1000", "100000" })
+	private int itemCount;
+
+	@Param({ "binary", "radix" })
+	private String queue;
+
+	@Param({ "1" })
+	private long seed;
+
+	private Integer[] items;
+	private int[] priorities;
+	private int[] lowerPriorities;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(seed);
+		items = new Integer[itemCount];
+		priorities = new int[itemCount];
+		lowerPriorities = new int[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			items[i] = i;
+			priorities[i] = random.nextInt(itemCount) + 1;
+			lowerPriorities[i] = random.nextInt(priorities[i]);
+		}
+	}
+
+	@Benchmark
+	public long enqueueAndDequeue() {
+		long sum = 0;
+		if ("radix".equals(queue)) {
+			RadixPriorityQueue<Integer> radixQueue = new RadixPriorityQueue<>();
+			for (int i = 0; i < itemCount; i++) {
+				radixQueue.enqueue(items[i], priorities[i]);
+			}
+			for (int i = 0; i < itemCount; i += 2) {
+				radixQueue.enqueue(items[i], lowerPriorities[i]);
+			}
+			while (!radixQueue.isEmpty()) {
+				sum += radixQueue.dequeue().getKey();
+			}
+		} else {
+			PriorityQueue<Integer> binaryQueue = new PriorityQueue<>();
+			for (int i = 0; i < itemCount; i++) {
+				binaryQueue.enqueue(items[i], priorities[i]);
+			}
+			for (int i = 0; i < itemCount; i += 2) {
+				binaryQueue.enqueue(items[i], lowerPriorities[i]);
+			}
+			while (!binaryQueue.isEmpty()) {
+				sum += binaryQueue.dequeue().getKey();
+			}
+		}
+		return sum;
+	}
+}
@@ -1,22 +1,37 @@
 package ziil.core;
 
-import java.awt.Point;
-
 /**
  * Represents an absolute direction, such as north or east
  * @author Manuel
  *
  */
 public enum AbsoluteDirection {
-	NORTH(0),
-	EAST(1),
-	SOUTH(2),
-	WEST(3);
+	NORTH(0, 0, -1),
+	EAST(1, 1, 0),
+	SOUTH(2, 0, 1),
+	WEST(3, -1, 0);
 	
+	private static final AbsoluteDirection[] VALUES = values();
+	// The direction of every step to a neighbour, indexed by (deltaY + 1) * 3 + deltaX + 1
+	private static final AbsoluteDirection[] BY_DELTA = new AbsoluteDirection[9];
 	private final int index;
+	private final int mask;
+	private final int deltaX;
+	private final int deltaY;
+	private final String name;
+	
+	static {
+		for (AbsoluteDirection direction : VALUES) {
+			BY_DELTA[(direction.deltaY + 1) * 3 + direction.deltaX + 1] = direction;
+		}
+	}
 	
-	private AbsoluteDirection(int index) {
+	private AbsoluteDirection(int index, int deltaX, int deltaY) {
 		this.index = index;
+		this.mask = 1 << index;
+		this.deltaX = deltaX;
+		this.deltaY = deltaY;
+		this.name = name().toLowerCase();
 	}
 	
 	/**
@@ -29,24 +44,62 @@ public enum AbsoluteDirection {
 	}
 	
 	/**
-	 * Calculates the direction between points.
-	 * The two points must neighbour each other, otherwise an exception is thrown
-	 * Invalid directions, such as north-west, also throw an exception
-	 * @param point1
-	 * @param point2
-	 * @return
+	 * Gets the bit that represents this direction in an exit mask
+	 * @return The bit for this direction
 	 */
-	public static AbsoluteDirection fromPoint(Point point1, Point point2) {
-		int diffX = (int)(point1.getX() - point2.getX());
-		int diffY = (int)(point1.getY() - point2.getY());
-		
-		if (diffX == 0) {
-			return diffY < 0 ? AbsoluteDirection.SOUTH : AbsoluteDirection.NORTH;
-		} else if (diffY == 0) {
-			return diffX < 0 ? AbsoluteDirection.EAST : AbsoluteDirection.WEST;
+	public int getMask() {
+		return mask;
+	}
+	
+	/**
+	 * Gets the change of the x coordinate when going one step in this direction
+	 * @return -1, 0 or 1
+	 */
+	public int getDeltaX() {
+		return deltaX;
+	}
+	
+	/**
+	 * Gets the change of the y coordinate when going one step in this direction. The y axis points south
+	 * @return -1, 0 or 1
+	 */
+	public int getDeltaY() {
+		return deltaY;
+	}
+	
+	/**
+	 * Gets the direction that points the other way, e.g. south for north
+	 * @return The opposite direction
+	 */
+	public AbsoluteDirection getOpposite() {
+		return fromIndex(index + 2);
+	}
+	
+	/**
+	 * Gets the direction for an index. Indices outside of 0 to 3 wrap around
+	 * @param index The index
+	 * @return The direction
+	 */
+	public static AbsoluteDirection fromIndex(int index) {
+		return VALUES[index & 3];
+	}
+	
+	/**
+	 * Gets the direction of a step between neighbouring coordinates.
+	 * Steps that don't lead to a neighbour, such as north-west, throw an exception
+	 * @param deltaX The change of the x coordinate
+	 * @param deltaY The change of the y coordinate, pointing south
+	 * @return The direction
+	 */
+	public static AbsoluteDirection fromDelta(int deltaX, int deltaY) {
+		AbsoluteDirection direction = null;
+		if (deltaX >= -1 && deltaX <= 1 && deltaY >= -1 && deltaY <= 1) {
+			direction = BY_DELTA[(deltaY + 1) * 3 + deltaX + 1];
+		}
+		if (direction == null) {
+			throw new IllegalArgumentException("Can't get a direction from a step of (" + deltaX + ", " + deltaY + ")");
 		}
-		
-		throw new IllegalArgumentException("Can't get a direction from " + point1 + " to " + point2);
+		return direction;
 	}
 	
 	/**
@@ -55,6 +108,6 @@ public enum AbsoluteDirection {
 	 */
 	@Override
 	public String toString() {
-		return this.name().toLowerCase();
+		return name;
 	}
 }
@@ -0,0 +1,40 @@
+package ziil.core;
+
+import java.util.zip.CRC32;
+
+/**
+ * Stores one byte per cell of a {@link Grid}
+ * @author Manuel
+ *
+ */
+public interface CellStorage {
+	/**
+	 * Gets the number of cells that can be stored
+	 * @return The number of cells
+	 */
+	long getCellCount();
+
+	/**
+	 * Reads the byte of a cell
+	 * @param cell The cell
+	 * @return The stored byte
+	 */
+	byte get(long cell);
+
+	/**
+	 * Writes the byte of a cell
+	 * @param cell The cell
+	 * @param value The byte to store
+	 */
+	void set(long cell, byte value);
+
+	/**
+	 * Feeds the bytes of all cells into a checksum, in the order of the cells
+	 * @param checksum The checksum to update
+	 */
+	default void updateChecksum(CRC32 checksum) {
+		for (long cell = 0; cell < getCellCount(); cell++) {
+			checksum.update(get(cell));
+		}
+	}
+}
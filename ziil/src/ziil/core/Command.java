@@ -3,15 +3,22 @@ package ziil.core;
 /**
  * Based on the "World of Zuul" application by Michael Kolling and David J. Barnes.
  * 
- * Holds user input as a "command"
+ * Holds user input as a "command". Commands can't be changed, so the
+ * parser hands out the same instance for every valid command.
  * 
  * @author  Manuel Allenspach
  */
 
 public class Command
 {
-    private String commandWord;
-    private String secondWord;
+    private static final RelativeDirection[] DIRECTIONS = RelativeDirection.values();
+    // Every valid command, by the ordinal of its word and the ordinal of its direction + 1 (0 for no direction)
+    private static final Command[][] VALID_COMMANDS = createValidCommands();
+    private static final Command EMPTY_COMMAND = new Command(null, null);
+    private final String commandWord;
+    private final String secondWord;
+    private final CommandWord word;
+    private final RelativeDirection direction;
 
     /**
      * Create a command object.
@@ -19,9 +26,37 @@ public class Command
      * @param secondWord The second word of the command.
      */
     public Command(String firstWord, String secondWord)
+    {
+        this(firstWord, secondWord,
+                firstWord != null ? CommandWord.fromCharacters(firstWord, 0, firstWord.length()) : CommandWord.UNKNOWN,
+                secondWord != null ? RelativeDirection.fromCharacters(secondWord, 0, secondWord.length()) : null);
+    }
+
+    private Command(String firstWord, String secondWord, CommandWord word, RelativeDirection direction)
     {
         commandWord = firstWord;
         this.secondWord = secondWord;
+        this.word = word;
+        this.direction = direction;
+    }
+
+    /**
+     * Get the shared instance of a valid command.
+     * @param word The command word. It must not be {@link CommandWord#UNKNOWN}.
+     * @param direction The direction of the second word, or null if there is no second word.
+     * @return The command.
+     */
+    static Command of(CommandWord word, RelativeDirection direction)
+    {
+        return VALID_COMMANDS[word.ordinal()][direction != null ? direction.ordinal() + 1 : 0];
+    }
+
+    /**
+     * @return The shared command of an empty line.
+     */
+    static Command empty()
+    {
+        return EMPTY_COMMAND;
     }
 
     /**
@@ -50,5 +85,39 @@ public class Command
     {
         return (secondWord != null);
     }
-}
 
+    /**
+     * @return The meaning of the first word. {@link CommandWord#UNKNOWN} if it
+     * isn't a command word.
+     */
+    public CommandWord getWord()
+    {
+        return word;
+    }
+
+    /**
+     * @return The direction of the second word. Returns null if there is no
+     * second word or it isn't a direction.
+     */
+    public RelativeDirection getDirection()
+    {
+        return direction;
+    }
+
+    private static Command[][] createValidCommands()
+    {
+        CommandWord[] words = CommandWord.values();
+        Command[][] commands = new Command[words.length][DIRECTIONS.length + 1];
+        for (CommandWord word : words) {
+            if (word == CommandWord.UNKNOWN) {
+                continue;
+            }
+            commands[word.ordinal()][0] = new Command(word.toString(), null, word, null);
+            for (RelativeDirection direction : DIRECTIONS) {
+                commands[word.ordinal()][direction.ordinal() + 1] =
+                        new Command(word.toString(), direction.toString(), word, direction);
+            }
+        }
+        return commands;
+    }
+}
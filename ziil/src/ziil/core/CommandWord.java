@@ -0,0 +1,94 @@
+package ziil.core;
+
+import ziil.util.PerfectHashTable;
+
+/**
+ * The words a command can start with, and what each of them does to a session
+ * @author Manuel
+ *
+ */
+public enum CommandWord {
+	GO {
+		@Override
+		void execute(Session session, Command command, StringBuilder output) {
+			session.goRoom(command, output);
+		}
+	},
+	QUIT {
+		@Override
+		void execute(Session session, Command command, StringBuilder output) {
+			session.quit();
+		}
+	},
+	HELP {
+		@Override
+		void execute(Session session, Command command, StringBuilder output) {
+			session.printHelp(output);
+		}
+	},
+	EVALUATE {
+		@Override
+		void execute(Session session, Command command, StringBuilder output) {
+			session.evaluatePath(output);
+		}
+	},
+	/**
+	 * Every input that doesn't start with a known word
+	 */
+	UNKNOWN {
+		@Override
+		void execute(Session session, Command command, StringBuilder output) {
+			output.append("I don't know what you mean...\n");
+		}
+	};
+
+	private static final PerfectHashTable<CommandWord> WORDS;
+	private final String word;
+
+	static {
+		CommandWord[] knownWords = { GO, QUIT, HELP, EVALUATE };
+		String[] keys = new String[knownWords.length];
+		for (int i = 0; i < knownWords.length; i++) {
+			keys[i] = knownWords[i].word;
+		}
+		WORDS = new PerfectHashTable<>(keys, knownWords);
+	}
+
+	private CommandWord() {
+		word = name().toLowerCase();
+	}
+
+	/**
+	 * Executes a command with this word
+	 * @param session The session to execute the command in
+	 * @param command The whole command
+	 * @param output The buffer to write the answer to
+	 */
+	abstract void execute(Session session, Command command, StringBuilder output);
+
+	/**
+	 * Gets the word that is typed for this command
+	 */
+	@Override
+	public String toString() {
+		return word;
+	}
+
+	/**
+	 * Gets the command word of a range of characters
+	 * @return The command word, or {@link #UNKNOWN}
+	 */
+	static CommandWord fromCharacters(CharSequence characters, int start, int end) {
+		CommandWord commandWord = WORDS.get(characters, start, end);
+		return commandWord != null ? commandWord : UNKNOWN;
+	}
+
+	/**
+	 * Gets the command word of a range of ASCII bytes
+	 * @return The command word, or {@link #UNKNOWN}
+	 */
+	static CommandWord fromBytes(byte[] bytes, int start, int end) {
+		CommandWord commandWord = WORDS.get(bytes, start, end);
+		return commandWord != null ? commandWord : UNKNOWN;
+	}
+}
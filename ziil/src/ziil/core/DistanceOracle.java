@@ -0,0 +1,161 @@
+package ziil.core;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Answers distance queries between any two rooms of a maze without searching.
+ * A perfect maze is a tree, so the distance between two rooms is depth(a) + depth(b) - 2 * depth(lowest common ancestor),
+ * where the depth of a room is the sum of the door weights from the root to it.
+ * The tree is rooted at the starting room and split into heavy paths, so the lowest common ancestor is found by
+ * jumping over at most O(log n) paths, with three ints of memory per room, so the maze can't have more than
+ * {@link Grid#MAX_ARRAY_CELLS} rooms.
+ * Mazes with loops aren't trees, their queries fall back to a {@link PathFinder} search.
+ * An oracle can't be changed once it is created, so it can be shared by any number of threads.
+ * @author Manuel
+ *
+ */
+public class DistanceOracle {
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private final Maze maze;
+	private final int[] parents;
+	private final int[] depths;
+	// The topmost cell of the heavy path every cell is on
+	private final int[] pathHeads;
+
+	/**
+	 * Preprocesses a maze
+	 * @param maze The maze to answer queries for
+	 */
+	public DistanceOracle(Maze maze) {
+		this.maze = maze;
+		Grid grid = maze.getGrid();
+		int cellCount = grid.getArrayCellCount();
+
+		int[] order = new int[cellCount];
+		int[] parents = new int[cellCount];
+		int[] depths = new int[cellCount];
+		int reachedCount = breadthFirstOrder(grid, (int)maze.getStartingRoom().getCell(), order, parents, depths);
+
+		if (reachedCount != cellCount || countConnections(grid) != cellCount - 1) {
+			this.parents = null;
+			this.depths = null;
+			this.pathHeads = null;
+			return;
+		}
+
+		// Children come after their parents in the order, so going backwards sums up the subtree sizes
+		int[] subtreeSizes = new int[cellCount];
+		int[] heavyChildren = new int[cellCount];
+		for (int i = cellCount - 1; i >= 0; i--) {
+			int cell = order[i];
+			subtreeSizes[cell]++;
+			if (i > 0) {
+				int parent = parents[cell];
+				subtreeSizes[parent] += subtreeSizes[cell];
+			}
+		}
+		Arrays.fill(heavyChildren, -1);
+		for (int i = 1; i < cellCount; i++) {
+			int cell = order[i];
+			int parent = parents[cell];
+			if (heavyChildren[parent] < 0 || subtreeSizes[cell] > subtreeSizes[heavyChildren[parent]]) {
+				heavyChildren[parent] = cell;
+			}
+		}
+
+		// Reuse the subtree sizes for the path heads, they aren't needed anymore
+		int[] pathHeads = subtreeSizes;
+		pathHeads[order[0]] = order[0];
+		for (int i = 1; i < cellCount; i++) {
+			int cell = order[i];
+			int parent = parents[cell];
+			pathHeads[cell] = heavyChildren[parent] == cell ? pathHeads[parent] : cell;
+		}
+
+		this.parents = parents;
+		this.depths = depths;
+		this.pathHeads = pathHeads;
+	}
+
+	/**
+	 * Checks if the maze is a tree, so queries don't need to search
+	 * @return True if the maze is connected and has no loops
+	 */
+	public boolean isTree() {
+		return parents != null;
+	}
+
+	/**
+	 * Gets the length of the shortest path between two rooms
+	 * @param room1 The first room
+	 * @param room2 The second room
+	 * @return The sum of the door weights between the rooms, which is the number of doors if the maze has no door weights,
+	 * or {@link UnweightedPathFinder#NO_PATH} if there is no path
+	 */
+	public int getDistance(Room room1, Room room2) {
+		if (room1.getMaze() != maze || room2.getMaze() != maze) {
+			throw new IllegalArgumentException(room1 + " or " + room2 + " is not in the maze of this oracle");
+		}
+
+		if (!isTree()) {
+			Optional<Integer> pathLength = new PathFinder().calculateShortestPathLength(room1, room2);
+			return pathLength.isPresent() ? pathLength.get() : UnweightedPathFinder.NO_PATH;
+		}
+
+		int cell1 = (int)room1.getCell();
+		int cell2 = (int)room2.getCell();
+		return depths[cell1] + depths[cell2] - 2 * depths[getLowestCommonAncestor(cell1, cell2)];
+	}
+
+	private int getLowestCommonAncestor(int cell1, int cell2) {
+		while (pathHeads[cell1] != pathHeads[cell2]) {
+			if (depths[pathHeads[cell1]] > depths[pathHeads[cell2]]) {
+				cell1 = parents[pathHeads[cell1]];
+			} else {
+				cell2 = parents[pathHeads[cell2]];
+			}
+		}
+		return depths[cell1] < depths[cell2] ? cell1 : cell2;
+	}
+
+	/**
+	 * Visits all reachable cells in breadth-first order, so every parent comes before its children
+	 * @return The number of reached cells
+	 */
+	private static int breadthFirstOrder(Grid grid, int rootCell, int[] order, int[] parents, int[] depths) {
+		boolean[] visitedCells = new boolean[order.length];
+		visitedCells[rootCell] = true;
+		parents[rootCell] = rootCell;
+		depths[rootCell] = 0;
+		order[0] = rootCell;
+		int count = 1;
+
+		// The order array doubles as the queue: everything between next and count still has to be expanded
+		for (int next = 0; next < count; next++) {
+			int cell = order[next];
+			int exits = grid.getExits(cell);
+			for (AbsoluteDirection direction : DIRECTIONS) {
+				if ((exits & direction.getMask()) == 0) {
+					continue;
+				}
+				int nextCell = (int)grid.getNeighbourBehindExit(cell, direction);
+				if (!visitedCells[nextCell]) {
+					visitedCells[nextCell] = true;
+					parents[nextCell] = cell;
+					depths[nextCell] = depths[cell] + grid.getDoorWeight(cell, direction);
+					order[count++] = nextCell;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static long countConnections(Grid grid) {
+		long exitCount = 0;
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			exitCount += Integer.bitCount(grid.getExits(cell));
+		}
+		return exitCount / 2;
+	}
+}
@@ -1,7 +1,15 @@
 package ziil.core;
 
-import java.util.Optional;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import ziil.generator.GeneratorType;
+import ziil.io.TextOutput;
+import ziil.journal.Journal;
+import ziil.journal.SyncPolicy;
 
 /**
  * Based on the "World of Zuul" application by Michael Kolling and David J. Barnes.
@@ -13,18 +21,34 @@ import java.util.Set;
 
 public class Game 
 {
-	private static final int MAZE_SIZE = 5;
-	private static final String GO_COMMAND = "go";
-	private static final String QUIT_COMMAND = "quit";
-	private static final String HELP_COMMAND = "help";
-	private static final String EVALUATE_COMMAND = "evaluate";
+	private static final int DEFAULT_MAZE_SIZE = 5;
     private Parser parser;
-    private Room currentRoom;
-    private Room endRoom;
-    private AbsoluteDirection currentDirection;
+    private TextOutput output;
+    private Session session;
+    private long sessionId;
+    private Journal journal;
     
-    public static void main(String[] args) {
-    	new Game().play();
+    /**
+     * Starts a game. The optional arguments are the size of the maze,
+     * the name of the generator (see {@link GeneratorType}), the seed and a journal directory.
+     * With a journal, an unfinished game is continued where it was left. This needs the same maze, so the seed is required.
+     * A script of commands can be replayed by redirecting it to the standard input.
+     * @param args The command line arguments.
+     * @throws IOException If the input, the output or the journal fails.
+     */
+    public static void main(String[] args) throws IOException {
+    	int mazeSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAZE_SIZE;
+    	GeneratorType generatorType = args.length > 1 ? GeneratorType.fromName(args[1]) : GeneratorType.BACKTRACKER;
+    	long seed = args.length > 2 ? Long.parseLong(args[2]) : ThreadLocalRandom.current().nextLong();
+    	Maze maze = MazeCache.shared().get(mazeSize, generatorType, seed);
+    	if (args.length > 3) {
+    		try (Journal journal = new Journal(Paths.get(args[3]), maze, SyncPolicy.EVERY_BATCH, 0)) {
+    			new Game(maze, journal).play();
+    			journal.snapshot();
+    		}
+    	} else {
+    		new Game(maze).play();
+    	}
     }
         
     /**
@@ -32,140 +56,79 @@ public class Game
      */
     public Game() 
     {
-        createRooms();
-        currentDirection = AbsoluteDirection.SOUTH;
-        parser = new Parser();
-    }
-
-    private void createRooms()
-    {
-    	Maze maze = new Maze(MAZE_SIZE);
-    	currentRoom = maze.getStartingRoom();
-    	endRoom = maze.getEndRoom();
+        this(new Maze(DEFAULT_MAZE_SIZE));
     }
-
+        
     /**
-     *  Main play routine.  Loops until end of play.
+     * Create a game in a maze.
+     * @param maze The maze to play in.
      */
-    public void play() 
-    {            
-        printWelcome();
-
-        // Enter the main command loop.  Here we repeatedly read commands and
-        // execute them until the game is over.
-                
-        boolean finished = false;
-        while (!finished) {
-            Command command = parser.getCommand();
-            finished = processCommand(command);
-        }
-        System.out.println("Thank you for playing. Good bye.");
-    }
-
-    private void printWelcome()
+    public Game(Maze maze) 
     {
-        System.out.println("Welcome to Ziil!\nYou find yourself in an underground labyrinth. Find the exit!");
-        System.out.println("Type '" + HELP_COMMAND + "' if you need help.\n");
-        System.out.println(getRoomDescription(currentRoom, currentDirection));
+        this(maze, new Parser(), TextOutput.standardOutput());
     }
 
     /**
-     * Given a command, process (that is: execute) the command.
-     * @param command The command to be processed.
-     * @return true If the command ends the game, false otherwise.
+     * Create a game in a maze with its own input and output, e.g. to replay a script.
+     * @param maze The maze to play in.
+     * @param parser The parser that reads the commands.
+     * @param output The output for the answers. The answer to a command is written at once.
      */
-    private boolean processCommand(Command command) 
-    {
-        boolean finished = false;
-
-        String commandWord = command.getCommandWord();
-        switch (commandWord) {
-        	case HELP_COMMAND:
-	        	printHelp();
-	        	break;
-        	case GO_COMMAND:
-        		finished = goRoom(command);
-        		break;
-        	case QUIT_COMMAND:
-        		finished = true;
-        		break;
-        	case EVALUATE_COMMAND:
-        		evaluatePath();
-        		break;
-    		default:
-                System.out.println("I don't know what you mean...");
-        };
-
-    	return finished;
-    }
-
-    private void printHelp() 
+    public Game(Maze maze, Parser parser, TextOutput output) 
     {
-        System.out.println("You are lost in an underground maze.");
-        System.out.println("Your command words are: " + GO_COMMAND + " " + QUIT_COMMAND + " " + HELP_COMMAND
-        		+ " " + EVALUATE_COMMAND);
+        session = new Session(maze);
+        this.parser = parser;
+        this.output = output;
     }
 
-    private boolean goRoom(Command command) 
+    /**
+     * Create a game that records every command in a journal. If the journal
+     * has an unfinished session, the game continues the latest one.
+     * @param maze The maze to play in. It has to be the maze of the journal.
+     * @param journal The journal to record the game in.
+     */
+    public Game(Maze maze, Journal journal)
     {
-        if(!command.hasSecondWord()) {
-            // if there is no second word, we don't know where to go...
-            System.out.println("Go where?");
-            return false;
-        }
-
-        AbsoluteDirection absDirection = getDirectionFromInput(command.getSecondWord());
-        if (absDirection == null) {
-            System.out.println("This isn't a valid direction!");
-            return false;
+        this(maze);
+        this.journal = journal;
+        Map<Long, Session> recoveredSessions = journal.getRecoveredSessions();
+        if (recoveredSessions.isEmpty()) {
+            sessionId = journal.newSessionId();
+        } else {
+            sessionId = Collections.max(recoveredSessions.keySet());
+            session = recoveredSessions.get(sessionId);
         }
-        
-        // Try to leave current room.
-        Room nextRoom = currentRoom.getExit(absDirection);
+    }
 
-        if (nextRoom == null) {
-            System.out.println("There is no door!");
-            return false;
-        }
-        
-        if (nextRoom.isEndRoom()) {
-        	System.out.println("Congratulations! You found the exit.");
-        	return true;
-        }
+    /**
+     *  Main play routine.  Loops until end of play or the end of the input.
+     *  @throws IOException If the input can't be read or the output can't be written.
+     */
+    public void play() throws IOException
+    {            
+        StringBuilder answer = new StringBuilder();
+        session.printWelcome(answer);
 
-        currentRoom = nextRoom;
-        currentDirection = absDirection;
-        System.out.println(getRoomDescription(currentRoom, currentDirection));
-        return false;
-    }
-    
-    private void evaluatePath() {
-    	PathFinder pathFinder = new PathFinder();
-    	Optional<Integer> pathLength = pathFinder.calculateShortestPathLength(currentRoom, endRoom);
-    	if (pathLength.isPresent()) {
-    		System.out.println("Only " + pathLength.get() + " doors to the exit!");
-    	} else {
-    		System.out.println("Can't find a path to the exit!");
-    	}
-    }
+        // Enter the main command loop.  Here we repeatedly read commands and
+        // execute them until the game is over. The answer to a command and the
+        // next prompt are written together.
+                
+        boolean finished = false;
+        while (!finished) {
+            answer.append("> ");
+            output.write(answer);
+            answer.setLength(0);
 
-    private String getRoomDescription(Room room, AbsoluteDirection direction)
-    {
-        String returnString = "You are " + room.getDescription() + ".\nPossible doors:";
-        Set<AbsoluteDirection> keys = room.getExits();
-        for(AbsoluteDirection exit : keys) {
-            returnString += " " + RelativeDirection.fromAbsoluteDirections(direction, exit).toString();
+            Command command = parser.getCommand();
+            if (command == null) {
+                break;
+            }
+            finished = session.processCommand(command, answer);
+            if (journal != null) {
+                journal.record(sessionId, command, session);
+            }
         }
-        return returnString;
-    }
-    
-    private AbsoluteDirection getDirectionFromInput(String input) {
-    	RelativeDirection[] relativeDirections = RelativeDirection.values();
-    	for (RelativeDirection relDirection : relativeDirections) {
-    		if (relDirection.toString().equals(input)) {
-    			return relDirection.toAbsoluteDirection(currentDirection);
-    		}
-    	}
-    	return null;
+        answer.append("Thank you for playing. Good bye.\n");
+        output.write(answer);
     }
 }
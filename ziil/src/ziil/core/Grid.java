@@ -0,0 +1,365 @@
+package ziil.core;
+
+/**
+ * Dense storage for a rectangular maze.
+ * Every cell takes up a single byte in a {@link CellStorage}, indexed by y*width+x.
+ * Cells are addressed by longs, so a grid in a {@link MappedCellStorage} can have more than 2^31 cells.
+ * The lower four bits hold the exit mask (see {@link AbsoluteDirection#getMask()}),
+ * the upper bits hold the id of the cell's description.
+ * Doors cost 1 to walk through, unless the grid has door weights. These are kept in a separate byte per cell,
+ * with the weight of the door to the east in the lower and the weight of the door to the south in the upper four bits,
+ * and are only allocated when the first weight is set.
+ * @author Manuel
+ *
+ */
+public class Grid {
+	/**
+	 * The largest number of cells that algorithms with an array entry per cell can handle
+	 */
+	public static final int MAX_ARRAY_CELLS = Integer.MAX_VALUE - 8;
+	/**
+	 * The highest weight of a door
+	 */
+	public static final int MAX_DOOR_WEIGHT = 16;
+	// Every path without loops has fewer doors than the grid has cells, so with this limit its cost fits into an int
+	private static final int MAX_WEIGHTED_CELLS = Integer.MAX_VALUE / MAX_DOOR_WEIGHT;
+	private static final int WEIGHT_BITS = 0x0F;
+	private static final int SOUTH_WEIGHT_SHIFT = 4;
+	private static final int EXIT_BITS = 0x0F;
+	private static final int DESCRIPTION_SHIFT = 4;
+	private static final int MAX_DESCRIPTION_ID = 0x07;
+	private final int width;
+	private final int height;
+	private final long cellCount;
+	// The difference between a cell and its neighbour, indexed by the direction
+	private final long[] neighbourOffsets;
+	private final CellStorage cells;
+	// Null if every door costs 1
+	private byte[] doorWeights;
+	private boolean frozen;
+
+	/**
+	 * Creates a square grid without any exits on the heap
+	 * @param size The length of one side. The grid will have size*size cells
+	 */
+	public Grid(int size) {
+		this(size, size);
+	}
+
+	/**
+	 * Creates a grid without any exits on the heap
+	 * @param width The number of cells from west to east
+	 * @param height The number of cells from north to south
+	 */
+	public Grid(int width, int height) {
+		this(width, height, new HeapCellStorage(getArrayCellCount(width, height)));
+	}
+
+	/**
+	 * Creates a grid in a storage
+	 * @param width The number of cells from west to east
+	 * @param height The number of cells from north to south
+	 * @param cells The storage for the cells. It has to hold exactly width*height cells
+	 */
+	public Grid(int width, int height, CellStorage cells) {
+		long cellCount = getCellCount(width, height);
+		if (cells.getCellCount() != cellCount) {
+			throw new IllegalArgumentException("The storage holds " + cells.getCellCount() + " cells instead of " + cellCount);
+		}
+		this.width = width;
+		this.height = height;
+		this.cellCount = cellCount;
+		this.neighbourOffsets = new long[] { -width, 1, width, -1 };
+		this.cells = cells;
+	}
+
+	/**
+	 * Calculates the number of cells of a grid
+	 * @param width The number of cells from west to east
+	 * @param height The number of cells from north to south
+	 * @return The number of cells
+	 */
+	public static long getCellCount(int width, int height) {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Size " + width + "x" + height + " is not supported!");
+		}
+		return (long)width * height;
+	}
+
+	private static int getArrayCellCount(int width, int height) {
+		long cellCount = getCellCount(width, height);
+		if (cellCount > MAX_ARRAY_CELLS) {
+			throw new IllegalArgumentException("Size " + width + "x" + height + " doesn't fit on the heap, use a MappedCellStorage");
+		}
+		return (int)cellCount;
+	}
+
+	/**
+	 * Gets the number of cells from west to east
+	 * @return The width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the number of cells from north to south
+	 * @return The height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the number of cells in this grid
+	 * @return The number of cells
+	 */
+	public long getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * Gets the number of cells for algorithms that keep an array with an entry per cell.
+	 * All cells of such a grid fit into an int
+	 * @return The number of cells
+	 * @throws UnsupportedOperationException If the grid has more than {@link #MAX_ARRAY_CELLS} cells
+	 */
+	public int getArrayCellCount() {
+		if (cellCount > MAX_ARRAY_CELLS) {
+			throw new UnsupportedOperationException("A grid of " + width + "x" + height + " has too many cells for this algorithm");
+		}
+		return (int)cellCount;
+	}
+
+	/**
+	 * Gets the cell at a position
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return The cell at this position
+	 */
+	public long getCell(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside of the grid");
+		}
+		return (long)y * width + x;
+	}
+
+	/**
+	 * Gets the x coordinate of a cell
+	 * @param cell The cell
+	 * @return The x coordinate
+	 */
+	public int getX(long cell) {
+		return (int)(cell % width);
+	}
+
+	/**
+	 * Gets the y coordinate of a cell
+	 * @param cell The cell
+	 * @return The y coordinate
+	 */
+	public int getY(long cell) {
+		return (int)(cell / width);
+	}
+
+	/**
+	 * Gets the exits of a cell as a mask of {@link AbsoluteDirection#getMask()} bits
+	 * @param cell The cell
+	 * @return The exit mask
+	 */
+	public int getExits(long cell) {
+		return cells.get(cell) & EXIT_BITS;
+	}
+
+	/**
+	 * Checks if a cell has an exit in a direction
+	 * @param cell The cell
+	 * @param direction The direction
+	 * @return True if there is an exit
+	 */
+	public boolean hasExit(long cell, AbsoluteDirection direction) {
+		return (cells.get(cell) & direction.getMask()) != 0;
+	}
+
+	/**
+	 * Connects a cell with its neighbour, so both get an exit to each other
+	 * @param cell The cell
+	 * @param direction The direction of the neighbour
+	 */
+	public void connect(long cell, AbsoluteDirection direction) {
+		checkNotFrozen();
+		long neighbour = getNeighbour(cell, direction);
+		if (neighbour < 0) {
+			throw new IllegalArgumentException("Cell " + cell + " has no neighbour to the " + direction);
+		}
+		addExit(cell, direction);
+		addExit(neighbour, direction.getOpposite());
+	}
+
+	/**
+	 * Gets the neighbouring cell in a direction, regardless of whether there is an exit
+	 * @param cell The cell
+	 * @param direction The direction of the neighbour
+	 * @return The neighbouring cell, or -1 if the cell is at the border of the grid
+	 */
+	public long getNeighbour(long cell, AbsoluteDirection direction) {
+		switch (direction) {
+			case NORTH:
+				return cell >= width ? cell - width : -1;
+			case EAST:
+				return cell % width < width - 1 ? cell + 1 : -1;
+			case SOUTH:
+				return cell < cellCount - width ? cell + width : -1;
+			default:
+				return cell % width > 0 ? cell - 1 : -1;
+		}
+	}
+
+	/**
+	 * Gets the cell behind an exit. Exits never lead out of the grid, so unlike
+	 * {@link #getNeighbour(long, AbsoluteDirection)} this doesn't check the border, which makes it cheaper
+	 * @param cell The cell
+	 * @param direction The direction of an exit of the cell
+	 * @return The neighbouring cell
+	 */
+	public long getNeighbourBehindExit(long cell, AbsoluteDirection direction) {
+		return cell + neighbourOffsets[direction.getIndex()];
+	}
+
+	/**
+	 * Gets the id of a cell's description
+	 * @param cell The cell
+	 * @return The description id
+	 */
+	public int getDescriptionId(long cell) {
+		return (cells.get(cell) & 0xFF) >>> DESCRIPTION_SHIFT;
+	}
+
+	/**
+	 * Sets the id of a cell's description
+	 * @param cell The cell
+	 * @param descriptionId The description id, between 0 and 7
+	 */
+	public void setDescriptionId(long cell, int descriptionId) {
+		if (descriptionId < 0 || descriptionId > MAX_DESCRIPTION_ID) {
+			throw new IllegalArgumentException("Description id " + descriptionId + " is out of range");
+		}
+		checkNotFrozen();
+		cells.set(cell, (byte)((cells.get(cell) & EXIT_BITS) | (descriptionId << DESCRIPTION_SHIFT)));
+	}
+
+	/**
+	 * Gets the cost of walking through a door
+	 * @param cell The cell
+	 * @param direction The direction of an exit of the cell
+	 * @return The weight of the door, between 1 and {@value #MAX_DOOR_WEIGHT}
+	 */
+	public int getDoorWeight(long cell, AbsoluteDirection direction) {
+		if (doorWeights == null) {
+			return 1;
+		}
+		switch (direction) {
+			case NORTH:
+				return ((doorWeights[(int)(cell - width)] >>> SOUTH_WEIGHT_SHIFT) & WEIGHT_BITS) + 1;
+			case EAST:
+				return (doorWeights[(int)cell] & WEIGHT_BITS) + 1;
+			case SOUTH:
+				return ((doorWeights[(int)cell] >>> SOUTH_WEIGHT_SHIFT) & WEIGHT_BITS) + 1;
+			default:
+				return (doorWeights[(int)(cell - 1)] & WEIGHT_BITS) + 1;
+		}
+	}
+
+	/**
+	 * Sets the cost of walking through the door between a cell and its neighbour, in both directions.
+	 * The weight can also be set before the cells are connected
+	 * @param cell The cell
+	 * @param direction The direction of the neighbour
+	 * @param weight The weight of the door, between 1 and {@value #MAX_DOOR_WEIGHT}
+	 * @throws UnsupportedOperationException If the grid has too many cells for the cost of a path to fit into an int
+	 */
+	public void setDoorWeight(long cell, AbsoluteDirection direction, int weight) {
+		if (weight < 1 || weight > MAX_DOOR_WEIGHT) {
+			throw new IllegalArgumentException("Door weight " + weight + " is out of range");
+		}
+		checkNotFrozen();
+		long neighbour = getNeighbour(cell, direction);
+		if (neighbour < 0) {
+			throw new IllegalArgumentException("Cell " + cell + " has no neighbour to the " + direction);
+		}
+		if (doorWeights == null) {
+			if (cellCount > MAX_WEIGHTED_CELLS) {
+				throw new UnsupportedOperationException("A grid of " + width + "x" + height + " has too many cells for door weights");
+			}
+			doorWeights = new byte[(int)cellCount];
+		}
+
+		// The door belongs to the cell on its western or northern side
+		int owner = (int)(direction == AbsoluteDirection.NORTH || direction == AbsoluteDirection.WEST ? neighbour : cell);
+		if (direction == AbsoluteDirection.EAST || direction == AbsoluteDirection.WEST) {
+			doorWeights[owner] = (byte)((doorWeights[owner] & ~WEIGHT_BITS) | (weight - 1));
+		} else {
+			doorWeights[owner] = (byte)((doorWeights[owner] & WEIGHT_BITS) | ((weight - 1) << SOUTH_WEIGHT_SHIFT));
+		}
+	}
+
+	/**
+	 * Checks if doors can cost more than 1
+	 * @return True if a door weight has been set
+	 */
+	public boolean hasDoorWeights() {
+		return doorWeights != null;
+	}
+
+	/**
+	 * Makes this grid read-only. Any further change throws an exception, so the grid can be read
+	 * by any number of threads without locking, once it has been safely published
+	 */
+	public void freeze() {
+		frozen = true;
+	}
+
+	/**
+	 * Checks if this grid is read-only
+	 * @return True if the grid can't be changed anymore
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Gets the storage of the cells, for copying the raw bytes in and out of files
+	 */
+	CellStorage getStorage() {
+		return cells;
+	}
+
+	/**
+	 * Gets the raw door weights, for copying them in and out of files
+	 * @return The weights, or null if every door costs 1
+	 */
+	byte[] getDoorWeights() {
+		return doorWeights;
+	}
+
+	/**
+	 * Replaces all door weights with raw ones that were read from a file
+	 */
+	void setDoorWeights(byte[] doorWeights) {
+		checkNotFrozen();
+		if (doorWeights.length != cellCount) {
+			throw new IllegalArgumentException("There are " + doorWeights.length + " door weights instead of " + cellCount);
+		}
+		this.doorWeights = doorWeights;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException("The grid is frozen and can't be changed anymore");
+		}
+	}
+
+	private void addExit(long cell, AbsoluteDirection direction) {
+		cells.set(cell, (byte)(cells.get(cell) | direction.getMask()));
+	}
+}
@@ -0,0 +1,40 @@
+package ziil.core;
+
+import java.util.zip.CRC32;
+
+/**
+ * Stores the cells of a grid in a byte array on the heap
+ * @author Manuel
+ *
+ */
+public class HeapCellStorage implements CellStorage {
+	private final byte[] cells;
+
+	/**
+	 * Creates a storage where every cell is zero
+	 * @param cellCount The number of cells
+	 */
+	public HeapCellStorage(int cellCount) {
+		cells = new byte[cellCount];
+	}
+
+	@Override
+	public long getCellCount() {
+		return cells.length;
+	}
+
+	@Override
+	public byte get(long cell) {
+		return cells[(int)cell];
+	}
+
+	@Override
+	public void set(long cell, byte value) {
+		cells[(int)cell] = value;
+	}
+
+	@Override
+	public void updateChecksum(CRC32 checksum) {
+		checksum.update(cells);
+	}
+}
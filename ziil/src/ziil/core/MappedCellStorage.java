@@ -0,0 +1,97 @@
+package ziil.core;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the cells of a grid in a memory-mapped file, so mazes can be larger than the heap.
+ * The operating system pages the cells in and out as they are needed.
+ * A single mapping can't be larger than 2 GB, so the file is mapped in chunks
+ * @author Manuel
+ *
+ */
+public class MappedCellStorage implements CellStorage {
+	private static final int CHUNK_BITS = 30;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private final MappedByteBuffer[] chunks;
+	private final long cellCount;
+
+	/**
+	 * Creates a new file and maps it. An existing file is overwritten
+	 * @param file The file to store the cells in
+	 * @param cellCount The number of cells
+	 * @throws IOException If the file can't be created or mapped
+	 */
+	public MappedCellStorage(Path file, long cellCount) throws IOException {
+		this(mapNewFile(file, cellCount), cellCount);
+	}
+
+	private MappedCellStorage(MappedByteBuffer[] chunks, long cellCount) {
+		this.chunks = chunks;
+		this.cellCount = cellCount;
+	}
+
+	/**
+	 * Maps a region of an open file. The mapping stays valid after the channel is closed
+	 * @param channel The file to map
+	 * @param mode {@link MapMode#READ_ONLY} to only read the cells, {@link MapMode#READ_WRITE} to also change them
+	 * @param offset The position of the first cell in the file
+	 * @param cellCount The number of cells
+	 * @return The storage
+	 * @throws IOException If the region can't be mapped
+	 */
+	static MappedCellStorage map(FileChannel channel, MapMode mode, long offset, long cellCount) throws IOException {
+		MappedByteBuffer[] chunks = new MappedByteBuffer[(int)((cellCount + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+		for (int i = 0; i < chunks.length; i++) {
+			long position = (long)i << CHUNK_BITS;
+			long chunkSize = Math.min(CHUNK_SIZE, cellCount - position);
+			chunks[i] = channel.map(mode, offset + position, chunkSize);
+		}
+		return new MappedCellStorage(chunks, cellCount);
+	}
+
+	private static MappedByteBuffer[] mapNewFile(Path file, long cellCount) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return map(channel, MapMode.READ_WRITE, 0, cellCount).chunks;
+		}
+	}
+
+	@Override
+	public long getCellCount() {
+		return cellCount;
+	}
+
+	@Override
+	public byte get(long cell) {
+		return chunks[(int)(cell >>> CHUNK_BITS)].get((int)(cell & CHUNK_MASK));
+	}
+
+	@Override
+	public void set(long cell, byte value) {
+		chunks[(int)(cell >>> CHUNK_BITS)].put((int)(cell & CHUNK_MASK), value);
+	}
+
+	@Override
+	public void updateChecksum(CRC32 checksum) {
+		for (MappedByteBuffer chunk : chunks) {
+			// A duplicate has its own position, so concurrent readers of the chunk aren't disturbed
+			checksum.update(chunk.duplicate());
+		}
+	}
+
+	/**
+	 * Writes all changes to the file
+	 */
+	public void force() {
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+	}
+}
@@ -1,20 +1,27 @@
 package ziil.core;
 
-import java.awt.Point;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Random;
-import java.util.Set;
-import java.util.Stack;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import ziil.generator.EllerGenerator;
+import ziil.generator.MazeGenerator;
+import ziil.generator.RecursiveBacktrackerGenerator;
+import ziil.metrics.Metrics;
+import ziil.metrics.Timer;
+import ziil.util.IntQueue;
 
 /**
  * Generates a maze-like room structure
+ * A maze can't be changed once it is created, so one instance can be shared by any number of threads
  * @author Manuel
  *
  */
 public class Maze {
-	private static final String[] ROOM_DESCRIPTIONS = { 
+	// Rendered into every possible room text by RoomDescriptions
+	static final String[] ROOM_DESCRIPTIONS = { 
 			"in an empty room",
 			"in a bathroom",
 			"in a very warm room",
@@ -25,109 +32,271 @@ public class Maze {
 			"feeling unwell. It may be from the bad air in this roomgo"
 		};
 	private static final int MIN_SIZE = 2;
-	private static final Random random = new Random();
-	private final int size;
-	private Map<Room, Point> roomPositions;
+	private static final Timer GENERATION_TIMER = Metrics.timer("maze.generation");
+	private static final Timer DISTANCE_FIELD_TIMER = Metrics.timer("maze.distance-field");
+	private final Grid grid;
+	private final long seed;
+	private final long startCell;
+	private final long endCell;
+	private volatile int[] distancesToEnd;
 	
 	/**
-	 * Creates a maze
+	 * Creates a maze with the default generator and a random seed
 	 * @param size The size of the maze (one length). The maze will have size*size rooms
 	 */
 	public Maze(int size) {
-		if (size < MIN_SIZE) {
-			throw new IllegalArgumentException("Size " + size + " is too low!");
-		}
-		this.size = size;
+		this(size, new RecursiveBacktrackerGenerator(), ThreadLocalRandom.current().nextLong());
+	}
+	
+	/**
+	 * Creates a maze
+	 * @param size The size of the maze (one length). The maze will have size*size rooms
+	 * @param generator The generator that connects the rooms
+	 * @param seed The seed for the generator and the room descriptions. The same seed creates the same maze
+	 */
+	public Maze(int size, MazeGenerator generator, long seed) {
+		this(size, size, generator, seed);
+	}
+	
+	/**
+	 * Creates a rectangular maze
+	 * @param width The number of rooms from west to east
+	 * @param height The number of rooms from north to south
+	 * @param generator The generator that connects the rooms
+	 * @param seed The seed for the generator and the room descriptions. The same seed creates the same maze
+	 */
+	public Maze(int width, int height, MazeGenerator generator, long seed) {
+		this(createGrid(width, height), generator, seed);
+	}
+	
+	/**
+	 * Creates a maze in a grid whose rooms aren't connected yet
+	 */
+	Maze(Grid grid, MazeGenerator generator, long seed) {
+		this.seed = seed;
 
-		createRooms();
-		connectRooms();
-		setEndRoom();
+		long startTime = Metrics.ENABLED ? System.nanoTime() : 0;
+		SplittableRandom random = new SplittableRandom(seed);
+		generator.generate(grid, random);
+		createRooms(grid, random);
+		grid.freeze();
+		if (Metrics.ENABLED) {
+			GENERATION_TIMER.recordSince(startTime);
+		}
+		// The grid is only published through this final field, so every thread sees it completely
+		this.grid = grid;
+		this.startCell = grid.getCell(0, 0);
+		this.endCell = getEndCell(grid);
+	}
+	
+	/**
+	 * Creates a maze around a grid that has already been connected and frozen, for example one loaded from a file
+	 */
+	Maze(Grid grid, long seed, long startCell, long endCell) {
+		if (!grid.isFrozen()) {
+			throw new IllegalArgumentException("The grid has to be frozen");
+		}
+		this.grid = grid;
+		this.seed = seed;
+		this.startCell = startCell;
+		this.endCell = endCell;
+	}
+	
+	/**
+	 * Creates a maze that is stored in a memory-mapped file instead of the heap.
+	 * The rooms are connected row by row with {@link EllerGenerator}, which only needs memory for one row,
+	 * so the maze can be much larger than the heap.
+	 * The file is a regular maze file, so the maze can be opened again with {@link #load(Path)} instead of being generated
+	 * @param file The file to store the maze in. An existing file is overwritten
+	 * @param size The size of the maze (one length). The maze will have size*size rooms
+	 * @param seed The seed for the generator and the room descriptions
+	 * @return The maze
+	 * @throws IOException If the file can't be created or mapped
+	 */
+	public static Maze createMapped(Path file, int size, long seed) throws IOException {
+		return createMapped(file, size, size, seed);
+	}
+	
+	/**
+	 * Creates a rectangular maze that is stored in a memory-mapped file instead of the heap,
+	 * see {@link #createMapped(Path, int, long)}. It can have more than 2^31 rooms
+	 * @param file The file to store the maze in. An existing file is overwritten
+	 * @param width The number of rooms from west to east
+	 * @param height The number of rooms from north to south
+	 * @param seed The seed for the generator and the room descriptions
+	 * @return The maze
+	 * @throws IOException If the file can't be created or mapped
+	 */
+	public static Maze createMapped(Path file, int width, int height, long seed) throws IOException {
+		checkSize(width, height);
+		return MazeFile.create(file, width, height, new EllerGenerator(), seed);
+	}
+	
+	/**
+	 * Loads a maze that was written with {@link #save(Path)}.
+	 * The file is mapped read-only instead of being read, so even very large mazes load in a fraction of a second.
+	 * The file must not be changed while the maze is in use
+	 * @param file The file to load
+	 * @return The maze
+	 * @throws IOException If the file can't be read, isn't a maze file or is corrupted
+	 */
+	public static Maze load(Path file) throws IOException {
+		return MazeFile.read(file);
+	}
+	
+	/**
+	 * Writes this maze to a file, so it can be loaded again with {@link #load(Path)} instead of being generated
+	 * @param file The file to write to. An existing file is overwritten
+	 * @throws IOException If the file can't be written
+	 */
+	public void save(Path file) throws IOException {
+		MazeFile.write(this, file);
 	}
 	
 	public Room getStartingRoom() {
-		return roomPositions
-				.entrySet()
-				.stream()
-				.filter(roomEntry -> roomEntry.getValue().getX() == 0 && roomEntry.getValue().getY() == 0)
-				.findFirst()
-				.get()
-				.getKey();
+		return new Room(this, startCell);
 	}
 	
 	public Room getEndRoom() {
-		int maxXY = size - 1;
-		
-		return roomPositions
-				.entrySet()
-				.stream()
-				.filter(roomEntry -> roomEntry.getValue().getX() == maxXY && roomEntry.getValue().getY() == maxXY)
-				.findFirst()
-				.get()
-				.getKey();
+		return new Room(this, endCell);
+	}
+	
+	/**
+	 * Gets the room at a position
+	 * @param x The x coordinate, starting at the west border
+	 * @param y The y coordinate, starting at the north border
+	 * @return The room at this position
+	 */
+	public Room getRoom(int x, int y) {
+		return new Room(this, grid.getCell(x, y));
+	}
+	
+	/**
+	 * Gets the grid in which the rooms of this maze are stored
+	 * @return The grid
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+	
+	/**
+	 * Checks whether the distances to the end room are available. They are kept in an array with an int per room,
+	 * so mazes with more than {@link Grid#MAX_ARRAY_CELLS} rooms don't have them
+	 * @return True if {@link #getDistanceToEnd(long)} can be called
+	 */
+	public boolean hasDistancesToEnd() {
+		return grid.getCellCount() <= Grid.MAX_ARRAY_CELLS;
 	}
+	
+	/**
+	 * Gets the length of the shortest path from a room to the end room.
+	 * The first call calculates the distances of all rooms with a single breadth-first search from the end room,
+	 * which takes time linear in the number of rooms and an int per room on the heap for as long as the maze lives.
+	 * Every further call is an array lookup
+	 * @param room The room to start in
+	 * @return The number of doors to the end room, or {@link UnweightedPathFinder#NO_PATH} if it can't be reached
+	 * @throws UnsupportedOperationException If the maze is too large for the distances, see {@link #hasDistancesToEnd()}
+	 */
+	public int getDistanceToEnd(Room room) {
+		if (room.getMaze() != this) {
+			throw new IllegalArgumentException(room + " is not in this maze");
+		}
 
-	private void connectRooms() {
-		Stack<Room> stack = new Stack<Room>();
-		Set<Room> visitedRooms = new HashSet<>();
-		
-		Room currentRoom = getStartingRoom();
-		
-		while (visitedRooms.size() != roomPositions.size()) {
-			visitedRooms.add(currentRoom);
-			Room neighbour = getRandomUnvisitedNeighbour(currentRoom, visitedRooms);
-			if (neighbour != null) {
-				stack.push(currentRoom);
-				Point currentPosition = roomPositions.get(currentRoom);
-				Point nextPosition = roomPositions.get(neighbour);
-				currentRoom.setExit(AbsoluteDirection.fromPoint(currentPosition, nextPosition), neighbour);
-				neighbour.setExit(AbsoluteDirection.fromPoint(nextPosition, currentPosition), currentRoom);
-				currentRoom = neighbour;
-			} else if (!stack.isEmpty()) {
-				currentRoom = stack.pop();
-			}
+		return getDistanceToEnd(room.getCell());
+	}
+	
+	/**
+	 * Gets the length of the shortest path from a cell to the end room, see {@link #getDistanceToEnd(Room)}
+	 * @param cell The cell of the room to start in
+	 * @return The number of doors to the end room, or {@link UnweightedPathFinder#NO_PATH} if it can't be reached
+	 * @throws UnsupportedOperationException If the maze is too large for the distances, see {@link #hasDistancesToEnd()}
+	 */
+	public int getDistanceToEnd(long cell) {
+		int[] distances = distancesToEnd;
+		if (distances == null) {
+			distances = calculateDistancesToEnd();
 		}
+		return distances[(int)cell];
 	}
 	
-	private void createRooms() {
-		roomPositions = new HashMap<>();
-		for (int y = 0; y < size; y++) {
-			for (int x = 0; x < size; x++) {
-				Room room = new Room(getRandomRoomDescription());
-				roomPositions.put(room, new Point(x, y));
+	/**
+	 * Gets the seed this maze was generated with
+	 * @return The seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	Room getRoom(long cell) {
+		return new Room(this, cell);
+	}
+	
+	String getDescription(long cell) {
+		return ROOM_DESCRIPTIONS[grid.getDescriptionId(cell)];
+	}
+	
+	boolean isEndCell(long cell) {
+		return cell == endCell;
+	}
+	
+	private synchronized int[] calculateDistancesToEnd() {
+		if (distancesToEnd != null) {
+			return distancesToEnd;
+		}
+
+		if (!hasDistancesToEnd()) {
+			throw new UnsupportedOperationException("A maze of " + grid.getWidth() + "x" + grid.getHeight()
+					+ " has too many rooms to keep their distances to the end");
+		}
+		long startTime = Metrics.ENABLED ? System.nanoTime() : 0;
+		int[] distances = new int[(int)grid.getCellCount()];
+		Arrays.fill(distances, UnweightedPathFinder.NO_PATH);
+		IntQueue queue = new IntQueue();
+		distances[(int)endCell] = 0;
+		queue.enqueue((int)endCell);
+
+		while (!queue.isEmpty()) {
+			int cell = queue.dequeue();
+			for (int index = 0; index < 4; index++) {
+				AbsoluteDirection direction = AbsoluteDirection.fromIndex(index);
+				int neighbour = (int)grid.getNeighbour(cell, direction);
+				if (neighbour >= 0 && distances[neighbour] == UnweightedPathFinder.NO_PATH
+						&& grid.hasExit(neighbour, direction.getOpposite())) {
+					distances[neighbour] = distances[cell] + 1;
+					queue.enqueue(neighbour);
+				}
 			}
 		}
+
+		distancesToEnd = distances;
+		if (Metrics.ENABLED) {
+			DISTANCE_FIELD_TIMER.recordSince(startTime);
+		}
+		return distances;
 	}
 	
-	private Room getRandomUnvisitedNeighbour(Room room, Set<Room> visitedRooms) {
-		Point roomPosition = roomPositions.get(room);
-		Room[] possibleRooms = roomPositions
-				.entrySet()
-				.stream()
-				.filter(r -> isNeighbour(roomPosition, r.getValue()) && !visitedRooms.contains(r.getKey()))
-				.map(r -> r.getKey())
-				.toArray(size -> new Room[size]);
-		
-		if (possibleRooms.length == 0) {
-			return null;
-		}
-		
-		return possibleRooms[random.nextInt(possibleRooms.length)];
+	private static Grid createGrid(int width, int height) {
+		checkSize(width, height);
+		return new Grid(width, height);
 	}
 	
-	private boolean isNeighbour(Point point1, Point point2) {
-		int diffX = (int)Math.abs(point1.getX() - point2.getX());
-		int diffY = (int)Math.abs(point1.getY() - point2.getY());
-		
-		return (diffX == 1 && diffY == 0) || (diffY == 1 && diffX == 0);
+	private static void checkSize(int width, int height) {
+		if (width < MIN_SIZE || height < MIN_SIZE) {
+			throw new IllegalArgumentException("Size " + width + "x" + height + " is too low!");
+		}
+	}
+
+	private static void createRooms(Grid grid, SplittableRandom random) {
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			grid.setDescriptionId(cell, getRandomRoomDescription(random));
+		}
 	}
 	
-	private void setEndRoom() {
-		Room endRoom = getEndRoom();
-		endRoom.setEndRoom();
+	private static long getEndCell(Grid grid) {
+		return grid.getCell(grid.getWidth() - 1, grid.getHeight() - 1);
 	}
 	
-	private String getRandomRoomDescription() {
-		int randomIndex = random.nextInt(ROOM_DESCRIPTIONS.length);
-		return ROOM_DESCRIPTIONS[randomIndex];
+	private static int getRandomRoomDescription(SplittableRandom random) {
+		return random.nextInt(ROOM_DESCRIPTIONS.length);
 	}
 }
@@ -0,0 +1,203 @@
+package ziil.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import ziil.generator.GeneratorType;
+import ziil.metrics.Counter;
+import ziil.metrics.Metrics;
+
+/**
+ * Keeps generated mazes, so asking for the same width, height, generator and seed again returns the same instance
+ * instead of generating it again. Mazes can't be changed, so the instances are shared by all callers.
+ * If several threads ask for a maze that isn't there yet, only one of them generates it and the others wait for it.
+ * The cache holds at most a number of cells; when it would hold more, the mazes that were used the longest time ago
+ * are dropped. Sessions that still play in a dropped maze keep it alive, it just isn't handed out anymore
+ * @author Manuel
+ *
+ */
+public class MazeCache {
+	private static final long DEFAULT_MAX_CELLS = 64L * 1024 * 1024;
+	private static final MazeCache SHARED = new MazeCache(DEFAULT_MAX_CELLS);
+	private static final Counter HITS = Metrics.counter("maze-cache.hits");
+	private static final Counter MISSES = Metrics.counter("maze-cache.misses");
+	private final long maxCells;
+	// Ordered from the least to the most recently used. A maze that is still being generated has an incomplete future
+	private final LinkedHashMap<Key, CompletableFuture<Maze>> mazes;
+	private long cellCount;
+
+	/**
+	 * Gets the cache of the process, which holds up to 64M cells
+	 * @return The cache
+	 */
+	public static MazeCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Creates an empty cache
+	 * @param maxCells The number of cells of all cached mazes together, after which old mazes are dropped
+	 */
+	public MazeCache(long maxCells) {
+		if (maxCells < 0) {
+			throw new IllegalArgumentException("Max cells " + maxCells + " is too low!");
+		}
+		this.maxCells = maxCells;
+		this.mazes = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets a maze, and generates it if it isn't in the cache
+	 * @param size The size of the maze (one length). The maze will have size*size rooms
+	 * @param generatorType The generator that connects the rooms
+	 * @param seed The seed for the generator and the room descriptions
+	 * @return The maze
+	 */
+	public Maze get(int size, GeneratorType generatorType, long seed) {
+		return get(size, size, generatorType, seed);
+	}
+
+	/**
+	 * Gets a maze, and generates it if it isn't in the cache
+	 * @param width The number of rooms from west to east
+	 * @param height The number of rooms from north to south
+	 * @param generatorType The generator that connects the rooms
+	 * @param seed The seed for the generator and the room descriptions
+	 * @return The maze
+	 */
+	public Maze get(int width, int height, GeneratorType generatorType, long seed) {
+		Key key = new Key(width, height, generatorType, seed);
+		CompletableFuture<Maze> maze;
+		boolean generate = false;
+		synchronized (this) {
+			maze = mazes.get(key);
+			if (maze == null) {
+				maze = new CompletableFuture<>();
+				mazes.put(key, maze);
+				generate = true;
+			}
+		}
+		if (Metrics.ENABLED) {
+			(generate ? MISSES : HITS).increment();
+		}
+
+		if (generate) {
+			generate(key, maze);
+		}
+		try {
+			return maze.join();
+		} catch (CompletionException e) {
+			// Every caller gets the exception of the generator as if it had generated the maze itself
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error)e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the number of mazes in the cache, including the ones that are being generated
+	 * @return The number of mazes
+	 */
+	public synchronized int size() {
+		return mazes.size();
+	}
+
+	/**
+	 * Gets the number of cells of all generated mazes in the cache
+	 * @return The number of cells
+	 */
+	public synchronized long getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * Drops all mazes. Mazes that are being generated are still handed to the threads that wait for them
+	 */
+	public synchronized void clear() {
+		mazes.clear();
+		cellCount = 0;
+	}
+
+	private void generate(Key key, CompletableFuture<Maze> future) {
+		Maze maze;
+		try {
+			maze = new Maze(key.width, key.height, key.generatorType.create(), key.seed);
+		} catch (RuntimeException | Error e) {
+			synchronized (this) {
+				mazes.remove(key, future);
+			}
+			future.completeExceptionally(e);
+			return;
+		}
+
+		synchronized (this) {
+			// The cache may have been cleared in the meantime, and someone else may be generating the maze again
+			if (mazes.get(key) == future) {
+				cellCount += maze.getGrid().getCellCount();
+				evict(key, maze.getGrid().getCellCount());
+			}
+		}
+		future.complete(maze);
+	}
+
+	/**
+	 * Drops the least recently used mazes until the cache fits. Mazes that are still being generated
+	 * aren't counted yet, so they stay. A new maze that doesn't fit on its own is handed out, but not kept
+	 */
+	private void evict(Key newKey, long newCellCount) {
+		if (newCellCount > maxCells) {
+			mazes.remove(newKey);
+			cellCount -= newCellCount;
+			return;
+		}
+
+		Iterator<Map.Entry<Key, CompletableFuture<Maze>>> entries = mazes.entrySet().iterator();
+		while (cellCount > maxCells && entries.hasNext()) {
+			Map.Entry<Key, CompletableFuture<Maze>> entry = entries.next();
+			Maze maze = entry.getValue().getNow(null);
+			if (maze != null && !entry.getKey().equals(newKey)) {
+				cellCount -= maze.getGrid().getCellCount();
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * The parameters that identify a generated maze
+	 */
+	private static final class Key {
+		private final int width;
+		private final int height;
+		private final GeneratorType generatorType;
+		private final long seed;
+
+		private Key(int width, int height, GeneratorType generatorType, long seed) {
+			this.width = width;
+			this.height = height;
+			this.generatorType = Objects.requireNonNull(generatorType);
+			this.seed = seed;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key)other;
+			return width == key.width && height == key.height && generatorType == key.generatorType && seed == key.seed;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((31 * width + height) * 31 + generatorType.hashCode()) * 31 + Long.hashCode(seed);
+		}
+	}
+}
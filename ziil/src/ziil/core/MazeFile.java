@@ -0,0 +1,217 @@
+package ziil.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import ziil.generator.MazeGenerator;
+
+/**
+ * Reads and writes mazes in a versioned binary format.
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, followed by the bytes of the cells exactly as a
+ * {@link Grid} stores them: the exits in the lower four bits and the description id in the upper bits.
+ * Because the layout on disk is the layout in memory, a loaded maze is served directly from the mapped file
+ * without copying or parsing any cell. If the maze has door weights, their bytes follow the cells, one per cell
+ * as well; they are read into the heap.
+ *
+ * Header, big-endian:
+ * <pre>
+ *  0  int   magic "ZIIL"
+ *  4  short version
+ *  6  short flags: 1 if there are door weights
+ *  8  int   width
+ * 12  int   height
+ * 16  long  seed
+ * 24  int   x, y of the starting room
+ * 32  int   x, y of the end room
+ * 40  long  CRC32 of the cells and the door weights
+ * 48  padding up to the first cell
+ * </pre>
+ * Version 1 files only had square mazes and store a single int size instead of the width and the height;
+ * everything after it is four bytes earlier. They can still be read.
+ * @author Manuel
+ *
+ */
+final class MazeFile {
+	private static final int MAGIC = 0x5A49494C;
+	private static final short VERSION = 2;
+	private static final short SQUARE_VERSION = 1;
+	private static final short DOOR_WEIGHTS_FLAG = 1;
+	// The cells start at a round offset, so the mapping of the cells stays aligned
+	private static final int HEADER_SIZE = 64;
+
+	private MazeFile() {
+	}
+
+	/**
+	 * Writes a maze to a file. The cells are written before the header, so a file that was only partially
+	 * written is never mistaken for a valid maze
+	 * @param maze The maze
+	 * @param file The file. An existing file is overwritten
+	 * @throws IOException If the file can't be written
+	 */
+	static void write(Maze maze, Path file) throws IOException {
+		Grid grid = maze.getGrid();
+		CellStorage source = grid.getStorage();
+		long cellCount = grid.getCellCount();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedCellStorage target = MappedCellStorage.map(channel, MapMode.READ_WRITE, HEADER_SIZE, cellCount);
+			for (long cell = 0; cell < cellCount; cell++) {
+				target.set(cell, source.get(cell));
+			}
+			target.force();
+			writeHeader(maze, target, channel);
+		}
+	}
+
+	/**
+	 * Generates a maze directly into a file, so its cells never have to fit into the heap.
+	 * Space for the header is left in front of the cells and only filled in after the generation,
+	 * so the file can be loaded with {@link #read(Path)} like any other maze file
+	 * @param file The file. An existing file is overwritten
+	 * @param width The number of rooms from west to east
+	 * @param height The number of rooms from north to south
+	 * @param generator The generator that connects the rooms
+	 * @param seed The seed for the generator and the room descriptions
+	 * @return The maze, served from the mapped file
+	 * @throws IOException If the file can't be created or written
+	 */
+	static Maze create(Path file, int width, int height, MazeGenerator generator, long seed) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// The mapping stays valid after the channel is closed
+			MappedCellStorage cells = MappedCellStorage.map(channel, MapMode.READ_WRITE, HEADER_SIZE,
+					Grid.getCellCount(width, height));
+			Maze maze = new Maze(new Grid(width, height, cells), generator, seed);
+			cells.force();
+			writeHeader(maze, cells, channel);
+			return maze;
+		}
+	}
+
+	/**
+	 * Writes the door weights behind the cells, which must already be on the disk, and then the header
+	 */
+	private static void writeHeader(Maze maze, CellStorage cells, FileChannel channel) throws IOException {
+		Grid grid = maze.getGrid();
+		long cellCount = grid.getCellCount();
+		CRC32 checksum = new CRC32();
+		cells.updateChecksum(checksum);
+		byte[] doorWeights = grid.getDoorWeights();
+		if (doorWeights != null) {
+			ByteBuffer weights = ByteBuffer.wrap(doorWeights);
+			while (weights.hasRemaining()) {
+				channel.write(weights, HEADER_SIZE + cellCount + weights.position());
+			}
+			checksum.update(doorWeights, 0, doorWeights.length);
+		}
+
+		Room startingRoom = maze.getStartingRoom();
+		Room endRoom = maze.getEndRoom();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.putShort(doorWeights != null ? DOOR_WEIGHTS_FLAG : 0);
+		header.putInt(grid.getWidth());
+		header.putInt(grid.getHeight());
+		header.putLong(maze.getSeed());
+		header.putInt(grid.getX(startingRoom.getCell())).putInt(grid.getY(startingRoom.getCell()));
+		header.putInt(grid.getX(endRoom.getCell())).putInt(grid.getY(endRoom.getCell()));
+		header.putLong(checksum.getValue());
+		header.clear();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * Loads a maze from a file. The cells are mapped read-only, they aren't copied to the heap
+	 * @param file The file
+	 * @return The maze
+	 * @throws IOException If the file can't be read, isn't a maze file or is corrupted
+	 */
+	static Maze read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0) {
+					throw new IOException(file + " is not a maze file");
+				}
+			}
+			header.flip();
+
+			if (header.getInt() != MAGIC) {
+				throw new IOException(file + " is not a maze file");
+			}
+			short version = header.getShort();
+			if (version != VERSION && version != SQUARE_VERSION) {
+				throw new IOException(file + " has version " + version + ", only versions " + SQUARE_VERSION + " to " + VERSION
+						+ " are supported");
+			}
+			short flags = header.getShort();
+			if ((flags & ~DOOR_WEIGHTS_FLAG) != 0) {
+				throw new IOException(file + " has unknown flags " + flags);
+			}
+			boolean hasDoorWeights = (flags & DOOR_WEIGHTS_FLAG) != 0;
+			int width = header.getInt();
+			int height = version == SQUARE_VERSION ? width : header.getInt();
+			long seed = header.getLong();
+			int startX = header.getInt();
+			int startY = header.getInt();
+			int endX = header.getInt();
+			int endY = header.getInt();
+			long expectedChecksum = header.getLong();
+
+			long cellCount;
+			Grid grid;
+			long startCell;
+			long endCell;
+			try {
+				cellCount = Grid.getCellCount(width, height);
+				long fileSize = HEADER_SIZE + (hasDoorWeights ? 2 * cellCount : cellCount);
+				if (channel.size() != fileSize) {
+					throw new IOException(file + " has " + channel.size() + " bytes instead of " + fileSize);
+				}
+				grid = new Grid(width, height, MappedCellStorage.map(channel, MapMode.READ_ONLY, HEADER_SIZE, cellCount));
+				startCell = grid.getCell(startX, startY);
+				endCell = grid.getCell(endX, endY);
+			} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+				throw new IOException(file + " has an invalid header", e);
+			}
+
+			CRC32 checksum = new CRC32();
+			grid.getStorage().updateChecksum(checksum);
+			if (hasDoorWeights) {
+				byte[] doorWeights = readDoorWeights(channel, file, cellCount);
+				checksum.update(doorWeights, 0, doorWeights.length);
+				grid.setDoorWeights(doorWeights);
+			}
+			if (checksum.getValue() != expectedChecksum) {
+				throw new IOException(file + " is corrupted, the checksum doesn't match");
+			}
+
+			grid.freeze();
+			return new Maze(grid, seed, startCell, endCell);
+		}
+	}
+
+	private static byte[] readDoorWeights(FileChannel channel, Path file, long cellCount) throws IOException {
+		if (cellCount > Grid.MAX_ARRAY_CELLS) {
+			throw new IOException(file + " has too many cells for door weights");
+		}
+		ByteBuffer weights = ByteBuffer.allocate((int)cellCount);
+		while (weights.hasRemaining()) {
+			if (channel.read(weights, HEADER_SIZE + cellCount + weights.position()) < 0) {
+				throw new IOException(file + " ends before its door weights");
+			}
+		}
+		return weights.array();
+	}
+}
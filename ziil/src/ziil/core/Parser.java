@@ -1,48 +1,151 @@
 package ziil.core;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import ziil.io.LineReader;
 
 /**
  * Based on the "World of Zuul" application by Michael Kolling and David J. Barnes.
  * 
- * Reads input from the command line and returns them as commands.
+ * Reads input from the command line or a script and returns them as commands.
+ * Lines are split in place and the words are looked up in perfect hash tables,
+ * so a valid command is parsed without allocating anything.
  * 
  * @author  Manuel Allenspach
  */
 public class Parser 
 {
-    private Scanner reader;         // source of command input
+    private static final int MAX_LINE_LENGTH = 1024;
+    private final LineReader reader;         // source of command input
+    private final byte[] line;
 
     /**
      * Create a parser to read from the terminal window.
      */
     public Parser() 
     {
-        reader = new Scanner(System.in);
+        this(LineReader.standardInput());
+    }
+
+    /**
+     * Create a parser to read from any source, e.g. a script file.
+     * @param reader The source of the input lines.
+     */
+    public Parser(LineReader reader) 
+    {
+        this.reader = reader;
+        line = new byte[MAX_LINE_LENGTH];
+    }
+
+    /**
+     * @return The next command from the user, or null if the input has ended.
+     * @throws IOException If the input can't be read.
+     */
+    public Command getCommand() throws IOException
+    {
+        int length = reader.readLine(line);
+        if (length < 0) {
+            return null;
+        }
+        return parse(line, 0, length);
+    }
+
+    /**
+     * Split a line of input into a command. Only the first two words count.
+     * @param inputLine The line to parse.
+     * @return The command of this line.
+     */
+    public static Command parse(CharSequence inputLine) 
+    {
+        int length = inputLine.length();
+        int firstStart = skipWhitespace(inputLine, 0, length);
+        int firstEnd = skipWord(inputLine, firstStart, length);
+        int secondStart = skipWhitespace(inputLine, firstEnd, length);
+        int secondEnd = skipWord(inputLine, secondStart, length);
+
+        if (firstStart == firstEnd) {
+            return Command.empty();
+        }
+        CommandWord word = CommandWord.fromCharacters(inputLine, firstStart, firstEnd);
+        RelativeDirection direction = null;
+        if (secondStart != secondEnd) {
+            direction = RelativeDirection.fromCharacters(inputLine, secondStart, secondEnd);
+        }
+
+        if (word != CommandWord.UNKNOWN && (secondStart == secondEnd || direction != null)) {
+            return Command.of(word, direction);
+        }
+        // Invalid input keeps its words, it is the only case that allocates
+        String secondWord = secondStart != secondEnd ? inputLine.subSequence(secondStart, secondEnd).toString() : null;
+        return new Command(inputLine.subSequence(firstStart, firstEnd).toString(), secondWord);
     }
 
     /**
-     * @return The next command from the user.
+     * Split a line of UTF-8 input into a command, without decoding it first.
+     * @param bytes The buffer that holds the line.
+     * @param offset The index of the first byte of the line.
+     * @param length The number of bytes of the line.
+     * @return The command of this line.
      */
-    public Command getCommand() 
+    public static Command parse(byte[] bytes, int offset, int length) 
     {
-        String word1 = null;
-        String word2 = null;
+        int end = offset + length;
+        int firstStart = skipWhitespace(bytes, offset, end);
+        int firstEnd = skipWord(bytes, firstStart, end);
+        int secondStart = skipWhitespace(bytes, firstEnd, end);
+        int secondEnd = skipWord(bytes, secondStart, end);
 
-        System.out.print("> ");     // print prompt
+        if (firstStart == firstEnd) {
+            return Command.empty();
+        }
+        CommandWord word = CommandWord.fromBytes(bytes, firstStart, firstEnd);
+        RelativeDirection direction = null;
+        if (secondStart != secondEnd) {
+            direction = RelativeDirection.fromBytes(bytes, secondStart, secondEnd);
+        }
 
-        String inputLine = reader.nextLine();
-        
-        // Don't close this, otherwise we can't read from the console anymore
-        Scanner tokenizer = new Scanner(inputLine);
-        
-        if(tokenizer.hasNext()) {
-            word1 = tokenizer.next();
-            if(tokenizer.hasNext()) {
-                word2 = tokenizer.next();
-            }
+        if (word != CommandWord.UNKNOWN && (secondStart == secondEnd || direction != null)) {
+            return Command.of(word, direction);
         }
+        // Invalid input may contain any character, so it is decoded properly
+        return parse(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
 
-        return new Command(word1, word2);
+    private static int skipWhitespace(CharSequence line, int index, int end)
+    {
+        while (index < end && Character.isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWord(CharSequence line, int index, int end)
+    {
+        while (index < end && !Character.isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWhitespace(byte[] bytes, int index, int end)
+    {
+        while (index < end && isWhitespace(bytes[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWord(byte[] bytes, int index, int end)
+    {
+        while (index < end && !isWhitespace(bytes[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(byte value)
+    {
+        return value == ' ' || (value >= '\t' && value <= '\r') || (value >= 0x1C && value <= 0x1F);
     }
-}
\ No newline at end of file
+}
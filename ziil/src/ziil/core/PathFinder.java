@@ -1,58 +1,301 @@
 package ziil.core;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
 
+import ziil.metrics.Counter;
+import ziil.metrics.Metrics;
+import ziil.metrics.Timer;
+import ziil.util.IntQueue;
+import ziil.util.LongBitSet;
 import ziil.util.PriorityQueue;
 
 /**
- * A class for finding the shortest path between two rooms
+ * A class for finding the shortest path between two rooms.
+ * The searches take the weights of the doors into account (see {@link Grid#getDoorWeight(long, AbsoluteDirection)}),
+ * so the length of a path is the sum of the weights of its doors. Without door weights, this is the number of doors,
+ * which is what the unweighted searches like {@link UnweightedPathFinder} and {@link #distances(List)} always count
  * @author Manuel
  *
  */
 public class PathFinder {
-	private PriorityQueue<Room> roomsToCheck;
-	private Set<Room> visitedRooms;
-	
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private static final Timer SEARCH_TIMER = Metrics.timer("path-finder.search");
+	private static final Counter NODES_EXPANDED = Metrics.counter("path-finder.nodes-expanded");
+	private PriorityQueue<Long> cellsToCheck;
+	private LongBitSet visitedCells;
+	private Grid grid;
+	private SearchStrategy strategy;
+	private int destinationX;
+	private int destinationY;
+	private long nodesExpanded;
+
 	/**
 	 * Returns the length of the shortest path between two rooms, if such a path exists
 	 * @param startRoom The starting room
 	 * @param destinationRoom The destination room.
-	 * @return The length of the shortest path, if one has been found.
+	 * @return The sum of the door weights of the shortest path, if one has been found.
 	 */
 	public Optional<Integer> calculateShortestPathLength(Room startRoom, Room destinationRoom) {
-		roomsToCheck = new PriorityQueue<>();
-		visitedRooms = new HashSet<>();
-		
-		roomsToCheck.enqueue(startRoom, 0);
-	    do
-	    {
-	        Entry<Room, Integer> currentItem = roomsToCheck.dequeue();
-	        Room currentRoom = currentItem.getKey();
-	        int pathLength = currentItem.getValue();
-	        
-	        if (currentRoom == destinationRoom) {
-	        	return Optional.of(pathLength);
-	        }
-	            		
-	        visitedRooms.add(currentRoom);
-	        visitNeighbours(currentRoom, pathLength);
-	    } while (!roomsToCheck.isEmpty());
-
-	    return Optional.empty();
-	}
-	
-	private void visitNeighbours(Room room, int currentCost) {
-	    for (AbsoluteDirection direction : room.getExits()) {
-	    	Room nextRoom = room.getExit(direction);
-	        if (visitedRooms.contains(nextRoom)) {
-	        	continue;
-	        }
-
-        	int newCost = currentCost + 1;
-	        roomsToCheck.enqueue(nextRoom, newCost);
-	    }
+		return calculateShortestPathLength(startRoom, destinationRoom, SearchStrategy.DIJKSTRA);
+	}
+
+	/**
+	 * Returns the length of the shortest path between two rooms, if such a path exists
+	 * @param startRoom The starting room
+	 * @param destinationRoom The destination room.
+	 * @param strategy The strategy to search with.
+	 * @return The sum of the door weights of the shortest path, if one has been found.
+	 */
+	public Optional<Integer> calculateShortestPathLength(Room startRoom, Room destinationRoom, SearchStrategy strategy) {
+		long startTime = Metrics.ENABLED ? System.nanoTime() : 0;
+		Optional<Integer> pathLength = search(startRoom, destinationRoom, strategy);
+		if (Metrics.ENABLED) {
+			SEARCH_TIMER.recordSince(startTime);
+			NODES_EXPANDED.add(nodesExpanded);
+		}
+		return pathLength;
+	}
+
+	private Optional<Integer> search(Room startRoom, Room destinationRoom, SearchStrategy strategy) {
+		nodesExpanded = 0;
+		if (startRoom.getMaze() != destinationRoom.getMaze()) {
+			return Optional.empty();
+		}
+
+		this.strategy = strategy;
+		grid = startRoom.getMaze().getGrid();
+		cellsToCheck = new PriorityQueue<>();
+		visitedCells = new LongBitSet(grid.getCellCount());
+		long destinationCell = destinationRoom.getCell();
+		destinationX = grid.getX(destinationCell);
+		destinationY = grid.getY(destinationCell);
+
+		enqueue(startRoom.getCell(), 0);
+		do
+		{
+			Entry<Long, Integer> currentItem = cellsToCheck.dequeue();
+			long currentCell = currentItem.getKey();
+			int pathLength = currentItem.getValue() - getEstimatedCost(currentCell);
+
+			if (currentCell == destinationCell) {
+				return Optional.of(pathLength);
+			}
+			// A room on a loop can be enqueued several times before it is expanded, only the cheapest entry counts
+			if (visitedCells.get(currentCell)) {
+				continue;
+			}
+
+			visitedCells.set(currentCell);
+			nodesExpanded++;
+			if (strategy == SearchStrategy.CORRIDOR_JUMP) {
+				jumpToNeighbours(currentCell, pathLength, destinationCell);
+			} else {
+				visitNeighbours(currentCell, pathLength);
+			}
+		} while (!cellsToCheck.isEmpty());
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Calculates the length of the shortest paths of many pairs of rooms in the same maze.
+	 * Pairs with the same source room are answered by a single breadth-first search, which stops as soon as
+	 * all of their destinations have been found. The searches run in parallel on the common fork-join pool
+	 * @param pairs The pairs of rooms. All rooms have to be in the same maze
+	 * @return The number of doors between the rooms of each pair, in the same order as the pairs,
+	 * or {@link UnweightedPathFinder#NO_PATH} if a destination can't be reached
+	 */
+	public static int[] distances(List<RoomPair> pairs) {
+		int[] results = new int[pairs.size()];
+		if (pairs.isEmpty()) {
+			return results;
+		}
+
+		Maze maze = pairs.get(0).getSource().getMaze();
+		Grid grid = maze.getGrid();
+		// The searches keep an array entry per cell, so all cells fit into an int
+		int cellCount = grid.getArrayCellCount();
+		int[] sourceCells = new int[pairs.size()];
+		int[] destinationCells = new int[pairs.size()];
+		// Sorting source and index packed into one long groups the pairs by source without boxing
+		long[] pairsBySource = new long[pairs.size()];
+		for (int i = 0; i < pairs.size(); i++) {
+			RoomPair pair = pairs.get(i);
+			if (pair.getSource().getMaze() != maze || pair.getDestination().getMaze() != maze) {
+				throw new IllegalArgumentException(pair + " is not in the same maze as the other pairs");
+			}
+			sourceCells[i] = (int)pair.getSource().getCell();
+			destinationCells[i] = (int)pair.getDestination().getCell();
+			pairsBySource[i] = ((long)sourceCells[i] << Integer.SIZE) | i;
+		}
+		Arrays.sort(pairsBySource);
+
+		int[] groupStarts = new int[pairs.size() + 1];
+		int groupCount = 0;
+		for (int i = 0; i < pairsBySource.length; i++) {
+			if (i == 0 || (pairsBySource[i] >>> Integer.SIZE) != (pairsBySource[i - 1] >>> Integer.SIZE)) {
+				groupStarts[groupCount++] = i;
+			}
+		}
+		groupStarts[groupCount] = pairsBySource.length;
+
+		// A search takes a scratch and puts it back when it is done, so there are only as many as searches run at once.
+		// They belong to this batch, so the pool threads don't keep the arrays of a large maze alive afterwards
+		Queue<BatchScratch> scratches = new ConcurrentLinkedQueue<>();
+		IntStream.range(0, groupCount).parallel().forEach(group -> {
+			BatchScratch scratch = scratches.poll();
+			if (scratch == null) {
+				scratch = new BatchScratch(cellCount);
+			}
+			scratch.answer(grid, pairsBySource, groupStarts[group], groupStarts[group + 1], destinationCells, results);
+			scratches.add(scratch);
+		});
+		return results;
+	}
+
+	/**
+	 * Gets the number of rooms that were expanded during the last search.
+	 * Rooms that were jumped over don't count
+	 * @return The number of expanded rooms
+	 */
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	private void visitNeighbours(long cell, int currentCost) {
+		for (AbsoluteDirection direction : DIRECTIONS) {
+			if (!grid.hasExit(cell, direction)) {
+				continue;
+			}
+			long nextCell = grid.getNeighbourBehindExit(cell, direction);
+			if (visitedCells.get(nextCell)) {
+				continue;
+			}
+
+			int newCost = currentCost + grid.getDoorWeight(cell, direction);
+			enqueue(nextCell, newCost);
+		}
+	}
+
+	/**
+	 * Follows every exit through the corridor behind it, up to the next room that is a junction,
+	 * a dead end or the destination. Only these rooms are enqueued
+	 */
+	private void jumpToNeighbours(long cell, int currentCost, long destinationCell) {
+		for (AbsoluteDirection direction : DIRECTIONS) {
+			if (!grid.hasExit(cell, direction)) {
+				continue;
+			}
+
+			long nextCell = grid.getNeighbourBehindExit(cell, direction);
+			int newCost = currentCost + grid.getDoorWeight(cell, direction);
+			AbsoluteDirection currentDirection = direction;
+			while (nextCell != destinationCell && nextCell != cell && Integer.bitCount(grid.getExits(nextCell)) == 2) {
+				int onwardExits = grid.getExits(nextCell) & ~currentDirection.getOpposite().getMask();
+				currentDirection = AbsoluteDirection.fromIndex(Integer.numberOfTrailingZeros(onwardExits));
+				newCost += grid.getDoorWeight(nextCell, currentDirection);
+				nextCell = grid.getNeighbourBehindExit(nextCell, currentDirection);
+			}
+
+			if (!visitedCells.get(nextCell)) {
+				enqueue(nextCell, newCost);
+			}
+		}
+	}
+
+	private void enqueue(long cell, int cost) {
+		cellsToCheck.enqueue(cell, cost + getEstimatedCost(cell));
+	}
+
+	/**
+	 * Estimates the remaining cost to the destination. Every door costs at least 1, so the estimate never overestimates,
+	 * and the first time the destination is dequeued, its path is the shortest one
+	 */
+	private int getEstimatedCost(long cell) {
+		if (strategy == SearchStrategy.DIJKSTRA) {
+			return 0;
+		}
+		return Math.abs(grid.getX(cell) - destinationX) + Math.abs(grid.getY(cell) - destinationY);
+	}
+
+	/**
+	 * The arrays one search of a batch needs. They are reused by the following searches of the batch,
+	 * and a cell only counts as visited if its mark is the one of the current search, so they never have to be cleared
+	 */
+	private static final class BatchScratch {
+		private final int[] marks;
+		private final int[] distances;
+		private final int[] destinationMarks;
+		private final IntQueue queue;
+		private int mark;
+
+		private BatchScratch(int cellCount) {
+			marks = new int[cellCount];
+			distances = new int[cellCount];
+			destinationMarks = new int[cellCount];
+			queue = new IntQueue();
+			mark = 0;
+		}
+
+		private void answer(Grid grid, long[] pairsBySource, int groupStart, int groupEnd, int[] destinationCells, int[] results) {
+			nextMark();
+			int remainingDestinations = 0;
+			for (int i = groupStart; i < groupEnd; i++) {
+				int destinationCell = destinationCells[(int)pairsBySource[i]];
+				if (destinationMarks[destinationCell] != mark) {
+					destinationMarks[destinationCell] = mark;
+					remainingDestinations++;
+				}
+			}
+
+			int sourceCell = (int)(pairsBySource[groupStart] >>> Integer.SIZE);
+			queue.clear();
+			marks[sourceCell] = mark;
+			distances[sourceCell] = 0;
+			queue.enqueue(sourceCell);
+			if (destinationMarks[sourceCell] == mark) {
+				remainingDestinations--;
+			}
+
+			while (remainingDestinations > 0 && !queue.isEmpty()) {
+				int cell = queue.dequeue();
+				int exits = grid.getExits(cell);
+				for (AbsoluteDirection direction : DIRECTIONS) {
+					if ((exits & direction.getMask()) == 0) {
+						continue;
+					}
+					int nextCell = (int)grid.getNeighbourBehindExit(cell, direction);
+					if (marks[nextCell] != mark) {
+						marks[nextCell] = mark;
+						distances[nextCell] = distances[cell] + 1;
+						queue.enqueue(nextCell);
+						if (destinationMarks[nextCell] == mark) {
+							remainingDestinations--;
+						}
+					}
+				}
+			}
+
+			for (int i = groupStart; i < groupEnd; i++) {
+				int index = (int)pairsBySource[i];
+				int destinationCell = destinationCells[index];
+				results[index] = marks[destinationCell] == mark ? distances[destinationCell] : UnweightedPathFinder.NO_PATH;
+			}
+		}
+
+		private void nextMark() {
+			if (mark == Integer.MAX_VALUE) {
+				Arrays.fill(marks, 0);
+				Arrays.fill(destinationMarks, 0);
+				mark = 0;
+			}
+			mark++;
+		}
 	}
 }
@@ -1,5 +1,7 @@
 package ziil.core;
 
+import ziil.util.PerfectHashTable;
+
 /**
  * Represents a relative direction, such as left or right
  * @author Manuel
@@ -11,6 +13,36 @@ public enum RelativeDirection {
 	RIGHT,
 	STRAIGHT;
 	
+	private static final PerfectHashTable<RelativeDirection> NAMES;
+	// The relative direction between two absolute directions, indexed by [origin][destination]
+	private static final RelativeDirection[][] BETWEEN = new RelativeDirection[4][4];
+	// The absolute direction of every relative direction, indexed by [relative direction][current direction]
+	private static final AbsoluteDirection[][] TO_ABSOLUTE = new AbsoluteDirection[4][4];
+	// The number of quarter turns to the right, in the order of the constants
+	private static final int[] TURNS = { 2, 3, 1, 0 };
+	private final String name;
+	
+	static {
+		RelativeDirection[] directions = values();
+		String[] names = new String[directions.length];
+		for (int i = 0; i < directions.length; i++) {
+			names[i] = directions[i].name;
+		}
+		NAMES = new PerfectHashTable<>(names, directions);
+		
+		for (RelativeDirection direction : directions) {
+			for (int origin = 0; origin < 4; origin++) {
+				int destination = (origin + TURNS[direction.ordinal()]) & 3;
+				TO_ABSOLUTE[direction.ordinal()][origin] = AbsoluteDirection.fromIndex(destination);
+				BETWEEN[origin][destination] = direction;
+			}
+		}
+	}
+	
+	private RelativeDirection() {
+		name = name().toLowerCase();
+	}
+	
 	/**
 	 * Calculates the relative direction between two absolute directions
 	 * @param origin The direction you are coming from
@@ -18,17 +50,7 @@ public enum RelativeDirection {
 	 * @return The relative direction between the absolute directions
 	 */
 	public static RelativeDirection fromAbsoluteDirections(AbsoluteDirection origin, AbsoluteDirection destination) {
-		int diffIndex = origin.getIndex() - destination.getIndex();
-		
-		if (origin == destination) {
-			return STRAIGHT;
-		} else if (Math.abs(diffIndex) == 2) {
-			return BACK;
-		} else if (diffIndex == -1 || diffIndex == 3) {
-			return RIGHT;
-		} else {
-			return LEFT;
-		}
+		return BETWEEN[origin.getIndex()][destination.getIndex()];
 	}
 	
 	/**
@@ -37,15 +59,7 @@ public enum RelativeDirection {
 	 * @return The absolute direction to go to
 	 */
 	public AbsoluteDirection toAbsoluteDirection(AbsoluteDirection currentDirection) {
-		if (this == STRAIGHT) {
-			return currentDirection;
-		} else if (this == BACK) {
-			return getAbsoluteDirectionFromIndex(currentDirection.getIndex() + 2);
-		} else if (this == RIGHT) {
-			return getAbsoluteDirectionFromIndex(currentDirection.getIndex() + 1);
-		} else {
-			return getAbsoluteDirectionFromIndex(currentDirection.getIndex() - 1);
-		}
+		return TO_ABSOLUTE[ordinal()][currentDirection.getIndex()];
 	}
 	
 	/**
@@ -54,19 +68,22 @@ public enum RelativeDirection {
 	 */
 	@Override
 	public String toString() {
-		return this.name().toLowerCase();
+		return name;
 	}
 	
-	private AbsoluteDirection getAbsoluteDirectionFromIndex(int index) {
-		AbsoluteDirection[] allDirections = AbsoluteDirection.values();
-		int warpedIndex = ((index % allDirections.length) + allDirections.length) % allDirections.length;
-		
-		for (AbsoluteDirection direction : allDirections) {
-			if (direction.getIndex() == warpedIndex) {
-				return direction;
-			}
-		}
-		
-		throw new IllegalStateException("Should never get here");
+	/**
+	 * Gets the direction that is typed as a range of characters
+	 * @return The direction, or null if the characters aren't a direction
+	 */
+	static RelativeDirection fromCharacters(CharSequence characters, int start, int end) {
+		return NAMES.get(characters, start, end);
+	}
+	
+	/**
+	 * Gets the direction that is typed as a range of ASCII bytes
+	 * @return The direction, or null if the bytes aren't a direction
+	 */
+	static RelativeDirection fromBytes(byte[] bytes, int start, int end) {
+		return NAMES.get(bytes, start, end);
 	}
 }
@@ -1,60 +1,42 @@
 package ziil.core;
 
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.Set;
 
 /**
  * Based on the "World of Zuul" application by Michael Kolling and David J. Barnes.
  *
  * A "Room" represents one location in the scenery of the game.  It is 
- * connected to other rooms via exits.  For each existing exit, the room 
- * stores a reference to the neighboring room.
+ * connected to other rooms via exits.
+ * 
+ * A room is a lightweight, immutable view on a cell of a {@link Maze}. The maze stores
+ * the exits and the description, so views can be created whenever they are needed.
  * 
  * @author  Manuel Allenspach
  */
 
 public class Room 
 {
-    private final String description;
-    private final HashMap<AbsoluteDirection, Room> exits;
-    private boolean isEndRoom;
+    private final Maze maze;
+    private final long cell;
 
     /**
-     * Create a room described "description". Initially, it has
-     * no exits. "description" is something like "a kitchen" or
-     * "an open court yard".
-     * @param description The room's description.
+     * Create a view on a cell of a maze.
+     * @param maze The maze the room is in.
+     * @param cell The cell of the room in the maze's grid.
      */
-    public Room(String description) 
+    Room(Maze maze, long cell) 
     {
-        this.description = description;
-        exits = new HashMap<AbsoluteDirection, Room>();
-        isEndRoom = false;
+        this.maze = maze;
+        this.cell = cell;
     }
 
-    /**
-     * Define an exit from this room.
-     * @param direction The direction of the exit.
-     * @param neighbor  The room to which the exit leads.
-     */
-    public void setExit(AbsoluteDirection direction, Room neighbor) 
-    {
-        exits.put(direction, neighbor);
-    }
-    
-    /**
-     * Defines that this room is an exit. Entering this room wins the game.
-     */
-    public void setEndRoom() {
-    	isEndRoom = true;
-    }
-    
     /**
      * Checks if the room is an end room (exit).
      * @return True if this room is an end/exit.
      */
     public boolean isEndRoom() {
-    	return isEndRoom;
+    	return maze.isEndCell(cell);
     }
 
     /**
@@ -63,7 +45,7 @@ public class Room
      */
     public String getDescription()
     {
-        return description;
+        return maze.getDescription(cell);
     }
     
     /**
@@ -71,7 +53,15 @@ public class Room
      * @return All exits.
      */
     public Set<AbsoluteDirection> getExits() {
-    	return exits.keySet();
+    	Set<AbsoluteDirection> exits = EnumSet.noneOf(AbsoluteDirection.class);
+    	int exitMask = maze.getGrid().getExits(cell);
+    	for (int index = 0; index < 4; index++) {
+    		AbsoluteDirection direction = AbsoluteDirection.fromIndex(index);
+    		if ((exitMask & direction.getMask()) != 0) {
+    			exits.add(direction);
+    		}
+    	}
+    	return exits;
     }
 
     /**
@@ -82,7 +72,51 @@ public class Room
      */
     public Room getExit(AbsoluteDirection direction) 
     {
-        return exits.get(direction);
+        Grid grid = maze.getGrid();
+        if (!grid.hasExit(cell, direction)) {
+            return null;
+        }
+        return new Room(maze, grid.getNeighbour(cell, direction));
+    }
+    
+    /**
+     * Gets the maze this room is in.
+     * @return The maze.
+     */
+    public Maze getMaze()
+    {
+        return maze;
+    }
+    
+    /**
+     * Gets the cell of this room in the maze's grid.
+     * @return The cell.
+     */
+    public long getCell()
+    {
+        return cell;
     }
-}
 
+    @Override
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof Room)) {
+            return false;
+        }
+        Room otherRoom = (Room)other;
+        return maze == otherRoom.maze && cell == otherRoom.cell;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(cell);
+    }
+
+    @Override
+    public String toString()
+    {
+        Grid grid = maze.getGrid();
+        return "Room(" + grid.getX(cell) + ", " + grid.getY(cell) + ")";
+    }
+}
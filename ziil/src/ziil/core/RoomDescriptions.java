@@ -0,0 +1,53 @@
+package ziil.core;
+
+/**
+ * Every text that describes a room, rendered ahead of time.
+ * A description only depends on the room's description id, its exit mask and the direction the player faces,
+ * which makes 8 * 16 * 4 = 512 possible texts. Moving into a room appends one of them instead of building it.
+ * The doors are always listed in the order north, east, south, west, relative to the player
+ * @author Manuel
+ *
+ */
+final class RoomDescriptions {
+	private static final int FACING_COUNT = 4;
+	private static final int EXIT_MASK_COUNT = 16;
+	private static final String[] RENDERED = render();
+
+	private RoomDescriptions() {
+	}
+
+	/**
+	 * Gets the description of a room, including the line break at the end
+	 * @param descriptionId The description id of the room
+	 * @param exits The exit mask of the room
+	 * @param facing The direction the player faces
+	 * @return The description
+	 */
+	static String get(int descriptionId, int exits, AbsoluteDirection facing) {
+		return RENDERED[(descriptionId * EXIT_MASK_COUNT + exits) * FACING_COUNT + facing.getIndex()];
+	}
+
+	private static String[] render() {
+		String[] descriptions = Maze.ROOM_DESCRIPTIONS;
+		String[] rendered = new String[descriptions.length * EXIT_MASK_COUNT * FACING_COUNT];
+		StringBuilder text = new StringBuilder();
+		for (int descriptionId = 0; descriptionId < descriptions.length; descriptionId++) {
+			for (int exits = 0; exits < EXIT_MASK_COUNT; exits++) {
+				for (int facing = 0; facing < FACING_COUNT; facing++) {
+					AbsoluteDirection facingDirection = AbsoluteDirection.fromIndex(facing);
+					text.setLength(0);
+					text.append("You are ").append(descriptions[descriptionId]).append(".\nPossible doors:");
+					for (int index = 0; index < FACING_COUNT; index++) {
+						AbsoluteDirection exit = AbsoluteDirection.fromIndex(index);
+						if ((exits & exit.getMask()) != 0) {
+							text.append(' ').append(RelativeDirection.fromAbsoluteDirections(facingDirection, exit));
+						}
+					}
+					text.append('\n');
+					rendered[(descriptionId * EXIT_MASK_COUNT + exits) * FACING_COUNT + facing] = text.toString().intern();
+				}
+			}
+		}
+		return rendered;
+	}
+}
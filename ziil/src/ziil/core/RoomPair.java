@@ -0,0 +1,42 @@
+package ziil.core;
+
+/**
+ * Two rooms, for example the start and the destination of a path
+ * @author Manuel
+ *
+ */
+public final class RoomPair {
+	private final Room source;
+	private final Room destination;
+
+	/**
+	 * Creates a pair of rooms
+	 * @param source The room to start in
+	 * @param destination The room to go to
+	 */
+	public RoomPair(Room source, Room destination) {
+		this.source = source;
+		this.destination = destination;
+	}
+
+	/**
+	 * Gets the room to start in
+	 * @return The source room
+	 */
+	public Room getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the room to go to
+	 * @return The destination room
+	 */
+	public Room getDestination() {
+		return destination;
+	}
+
+	@Override
+	public String toString() {
+		return source + " -> " + destination;
+	}
+}
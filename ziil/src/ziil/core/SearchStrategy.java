@@ -0,0 +1,31 @@
+package ziil.core;
+
+/**
+ * The strategies the {@link PathFinder} can use to search for the shortest path
+ * @author Manuel
+ *
+ */
+public enum SearchStrategy {
+	/**
+	 * Dijkstra's algorithm, which expands rooms in the order of their distance to the start
+	 */
+	DIJKSTRA,
+	/**
+	 * A* with the Manhattan distance to the destination as heuristic
+	 */
+	A_STAR,
+	/**
+	 * A* that jumps over corridors: rooms with exactly two doors are passed through without being expanded.
+	 * Unlike jump point search on open grids, it prunes nothing else, so it only helps in mazes with long corridors
+	 */
+	CORRIDOR_JUMP;
+
+	/**
+	 * The String representation of this object
+	 * @return The String representation
+	 */
+	@Override
+	public String toString() {
+		return this.name().toLowerCase().replace('_', '-');
+	}
+}
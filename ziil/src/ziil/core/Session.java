@@ -0,0 +1,234 @@
+package ziil.core;
+
+import ziil.metrics.Counter;
+import ziil.metrics.Metrics;
+import ziil.metrics.Timer;
+
+/**
+ * Based on the "World of Zuul" application by Michael Kolling and David J. Barnes.
+ *
+ * The state of one player in a maze, independent of where the commands come from
+ * and where the output goes to. Many sessions can share the same maze.
+ *
+ * @author Manuel Allenspach
+ */
+
+public class Session
+{
+	private static final String HELP_TEXT = createHelpText();
+    private static final Counter COMMANDS = Metrics.counter("commands");
+    // The time every command word takes, indexed by its ordinal
+    private static final Timer[] COMMAND_TIMERS = createCommandTimers();
+    private final Maze maze;
+    private final Grid grid;
+    // The player is kept as a plain cell, so moving around doesn't create any room objects
+    private long currentCell;
+    private AbsoluteDirection currentDirection;
+    private boolean finished;
+
+    /**
+     * Create a session that starts in the starting room of a maze.
+     * @param maze The maze to play in.
+     */
+    public Session(Maze maze)
+    {
+        this.maze = maze;
+        grid = maze.getGrid();
+        currentCell = maze.getStartingRoom().getCell();
+        currentDirection = AbsoluteDirection.SOUTH;
+        finished = false;
+    }
+
+    /**
+     * Create a session that continues at a saved position.
+     * @param room The room the player is in.
+     * @param direction The direction the player is facing.
+     */
+    public Session(Room room, AbsoluteDirection direction)
+    {
+        this.maze = room.getMaze();
+        grid = maze.getGrid();
+        currentCell = room.getCell();
+        currentDirection = direction;
+        finished = false;
+    }
+
+    /**
+     * Write the welcome message and the description of the starting room.
+     * @param output The buffer to write to.
+     */
+    public void printWelcome(StringBuilder output)
+    {
+        output.append("Welcome to Ziil!\nYou find yourself in an underground labyrinth. Find the exit!\n");
+        output.append("Type '" + CommandWord.HELP + "' if you need help.\n\n");
+        printLocation(output);
+    }
+
+    /**
+     * Write the description of the room the player is in.
+     * @param output The buffer to write to.
+     */
+    public void printLocation(StringBuilder output)
+    {
+        appendRoomDescription(output);
+    }
+
+    /**
+     * Given a command, process (that is: execute) the command.
+     * @param command The command to be processed.
+     * @param output The buffer to write the answer to.
+     * @return true If the command ends the game, false otherwise.
+     */
+    public boolean processCommand(Command command, StringBuilder output)
+    {
+        long startTime = Metrics.ENABLED ? System.nanoTime() : 0;
+        CommandWord word = command.getWord();
+        word.execute(this, command, output);
+        if (Metrics.ENABLED) {
+            COMMANDS.increment();
+            COMMAND_TIMERS[word.ordinal()].recordSince(startTime);
+        }
+        return finished;
+    }
+
+    /**
+     * Go through a door without writing anything, for bots that don't read the answers.
+     * Going through the door to the exit ends the game.
+     * @param direction The direction of the door, relative to the direction the player is facing.
+     * @return true if there is a door in this direction, false otherwise.
+     */
+    public boolean go(RelativeDirection direction)
+    {
+        AbsoluteDirection absDirection = direction.toAbsoluteDirection(currentDirection);
+        if (!grid.hasExit(currentCell, absDirection)) {
+            return false;
+        }
+
+        long nextCell = grid.getNeighbourBehindExit(currentCell, absDirection);
+        if (maze.isEndCell(nextCell)) {
+            finished = true;
+            return true;
+        }
+
+        currentCell = nextCell;
+        currentDirection = absDirection;
+        return true;
+    }
+
+    /**
+     * @return true if the game of this session is over.
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * @return The room the player is in.
+     */
+    public Room getCurrentRoom()
+    {
+        return maze.getRoom(currentCell);
+    }
+
+    /**
+     * @return The cell of the room the player is in, see {@link Grid}.
+     */
+    public long getCurrentCell()
+    {
+        return currentCell;
+    }
+
+    /**
+     * @return The direction the player is facing.
+     */
+    public AbsoluteDirection getCurrentDirection()
+    {
+        return currentDirection;
+    }
+
+    /**
+     * @return The maze of this session.
+     */
+    public Maze getMaze()
+    {
+        return maze;
+    }
+
+    void printHelp(StringBuilder output)
+    {
+        output.append(HELP_TEXT);
+    }
+
+    void quit()
+    {
+        finished = true;
+    }
+
+    void goRoom(Command command, StringBuilder output)
+    {
+        if(!command.hasSecondWord()) {
+            // if there is no second word, we don't know where to go...
+            output.append("Go where?\n");
+            return;
+        }
+
+        RelativeDirection relDirection = command.getDirection();
+        if (relDirection == null) {
+            output.append("This isn't a valid direction!\n");
+            return;
+        }
+
+        // Try to leave current room.
+        if (!go(relDirection)) {
+            output.append("There is no door!\n");
+            return;
+        }
+
+        if (finished) {
+        	output.append("Congratulations! You found the exit.\n");
+        	return;
+        }
+        appendRoomDescription(output);
+    }
+
+    void evaluatePath(StringBuilder output) {
+    	if (!maze.hasDistancesToEnd()) {
+    		output.append("This maze is too large to count the doors to the exit!\n");
+    		return;
+    	}
+    	int pathLength = maze.getDistanceToEnd(currentCell);
+    	if (pathLength != UnweightedPathFinder.NO_PATH) {
+    		output.append("Only ").append(pathLength).append(" doors to the exit!\n");
+    	} else {
+    		output.append("Can't find a path to the exit!\n");
+    	}
+    }
+
+    private void appendRoomDescription(StringBuilder output)
+    {
+        output.append(RoomDescriptions.get(grid.getDescriptionId(currentCell), grid.getExits(currentCell),
+                currentDirection));
+    }
+
+    private static Timer[] createCommandTimers()
+    {
+        CommandWord[] words = CommandWord.values();
+        Timer[] timers = new Timer[words.length];
+        for (CommandWord word : words) {
+            timers[word.ordinal()] = Metrics.timer("command." + word.name().toLowerCase());
+        }
+        return timers;
+    }
+
+    private static String createHelpText()
+    {
+        StringBuilder text = new StringBuilder("You are lost in an underground maze.\nYour command words are:");
+        for (CommandWord word : CommandWord.values()) {
+            if (word != CommandWord.UNKNOWN) {
+                text.append(' ').append(word);
+            }
+        }
+        return text.append('\n').toString();
+    }
+}
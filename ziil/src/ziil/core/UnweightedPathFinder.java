@@ -0,0 +1,228 @@
+package ziil.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import ziil.util.IntQueue;
+
+/**
+ * Finds shortest paths in a maze where every door costs the same, with breadth-first searches.
+ * The scratch arrays are allocated once per maze and reused for every search, so a finder
+ * should be kept around instead of being created for every query. It is not thread-safe.
+ * The scratch arrays have an entry per cell, so the maze can't have more than {@link Grid#MAX_ARRAY_CELLS} rooms.
+ * @author Manuel
+ *
+ */
+public class UnweightedPathFinder {
+	/**
+	 * The distance that is returned if there is no path
+	 */
+	public static final int NO_PATH = -1;
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private final Maze maze;
+	private final Grid grid;
+	// A cell has been visited in the current search if its mark is the current forward or backward mark.
+	// This way the arrays never have to be cleared
+	private final int[] marks;
+	private final int[] distances;
+	// For cells found from the start: the direction in which the cell was entered.
+	// For cells found from the destination: the direction that leads towards the destination
+	private final byte[] directions;
+	private final IntQueue forwardQueue;
+	private final IntQueue backwardQueue;
+	private int forwardMark;
+	private int backwardMark;
+	private int meetingCell;
+	private int meetingNeighbour;
+	private AbsoluteDirection meetingDirection;
+
+	/**
+	 * Creates a path finder for a maze
+	 * @param maze The maze to search in
+	 */
+	public UnweightedPathFinder(Maze maze) {
+		this.maze = maze;
+		this.grid = maze.getGrid();
+		int cellCount = grid.getArrayCellCount();
+		this.marks = new int[cellCount];
+		this.distances = new int[cellCount];
+		this.directions = new byte[cellCount];
+		this.forwardQueue = new IntQueue();
+		this.backwardQueue = new IntQueue();
+		this.forwardMark = 0;
+		this.backwardMark = 0;
+	}
+
+	/**
+	 * Calculates the length of the shortest path between two rooms with a bidirectional breadth-first search
+	 * @param startRoom The starting room
+	 * @param destinationRoom The destination room
+	 * @return The number of doors on the shortest path, or {@link #NO_PATH} if there is none
+	 */
+	public int calculateShortestPathLength(Room startRoom, Room destinationRoom) {
+		checkRoom(startRoom);
+		checkRoom(destinationRoom);
+		return search((int)startRoom.getCell(), (int)destinationRoom.getCell());
+	}
+
+	/**
+	 * Finds the shortest route between two rooms with a bidirectional breadth-first search
+	 * @param startRoom The starting room
+	 * @param destinationRoom The destination room
+	 * @return The directions to go to, starting in the starting room, if there is a path
+	 */
+	public Optional<List<AbsoluteDirection>> findRoute(Room startRoom, Room destinationRoom) {
+		checkRoom(startRoom);
+		checkRoom(destinationRoom);
+		int startCell = (int)startRoom.getCell();
+		int destinationCell = (int)destinationRoom.getCell();
+
+		int pathLength = search(startCell, destinationCell);
+		if (pathLength == NO_PATH) {
+			return Optional.empty();
+		}
+
+		List<AbsoluteDirection> route = new ArrayList<>(pathLength);
+		if (pathLength == 0) {
+			return Optional.of(route);
+		}
+
+		int cell = meetingCell;
+		while (cell != startCell) {
+			AbsoluteDirection direction = DIRECTIONS[directions[cell]];
+			route.add(direction);
+			cell = (int)grid.getNeighbourBehindExit(cell, direction.getOpposite());
+		}
+		Collections.reverse(route);
+		route.add(meetingDirection);
+		cell = meetingNeighbour;
+		while (cell != destinationCell) {
+			AbsoluteDirection direction = DIRECTIONS[directions[cell]];
+			route.add(direction);
+			cell = (int)grid.getNeighbourBehindExit(cell, direction);
+		}
+		return Optional.of(route);
+	}
+
+	/**
+	 * Calculates the length of the shortest path from one room to all rooms with a plain breadth-first search
+	 * @param sourceRoom The room to start in
+	 * @return The number of doors to each cell of the maze's grid, or {@link #NO_PATH} for unreachable cells
+	 */
+	public int[] calculateShortestPathLengths(Room sourceRoom) {
+		checkRoom(sourceRoom);
+		int[] result = new int[marks.length];
+		Arrays.fill(result, NO_PATH);
+		forwardQueue.clear();
+
+		int sourceCell = (int)sourceRoom.getCell();
+		result[sourceCell] = 0;
+		forwardQueue.enqueue(sourceCell);
+		while (!forwardQueue.isEmpty()) {
+			int cell = forwardQueue.dequeue();
+			int exits = grid.getExits(cell);
+			for (AbsoluteDirection direction : DIRECTIONS) {
+				if ((exits & direction.getMask()) == 0) {
+					continue;
+				}
+				int nextCell = (int)grid.getNeighbourBehindExit(cell, direction);
+				if (result[nextCell] == NO_PATH) {
+					result[nextCell] = result[cell] + 1;
+					forwardQueue.enqueue(nextCell);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Searches from both ends at the same time, always expanding one whole level of the smaller frontier.
+	 * As soon as a level touches the other side, the best connection of that level is the shortest path
+	 */
+	private int search(int startCell, int destinationCell) {
+		if (startCell == destinationCell) {
+			return 0;
+		}
+
+		nextMarks();
+		forwardQueue.clear();
+		backwardQueue.clear();
+		visit(startCell, forwardMark, 0, 0, forwardQueue);
+		visit(destinationCell, backwardMark, 0, 0, backwardQueue);
+
+		while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+			int pathLength;
+			if (forwardQueue.size() <= backwardQueue.size()) {
+				pathLength = expandLevel(forwardQueue, forwardMark, backwardMark, true);
+			} else {
+				pathLength = expandLevel(backwardQueue, backwardMark, forwardMark, false);
+			}
+			if (pathLength != NO_PATH) {
+				return pathLength;
+			}
+		}
+		return NO_PATH;
+	}
+
+	private int expandLevel(IntQueue queue, int ownMark, int otherMark, boolean isForward) {
+		int bestLength = NO_PATH;
+		for (int remaining = queue.size(); remaining > 0; remaining--) {
+			int cell = queue.dequeue();
+			int exits = grid.getExits(cell);
+			for (AbsoluteDirection direction : DIRECTIONS) {
+				if ((exits & direction.getMask()) == 0) {
+					continue;
+				}
+				int nextCell = (int)grid.getNeighbourBehindExit(cell, direction);
+				if (marks[nextCell] == otherMark) {
+					int length = distances[cell] + 1 + distances[nextCell];
+					if (bestLength == NO_PATH || length < bestLength) {
+						bestLength = length;
+						rememberMeeting(cell, nextCell, direction, isForward);
+					}
+				} else if (marks[nextCell] != ownMark) {
+					int directionIndex = isForward ? direction.getIndex() : direction.getOpposite().getIndex();
+					visit(nextCell, ownMark, distances[cell] + 1, directionIndex, queue);
+				}
+			}
+		}
+		return bestLength;
+	}
+
+	private void rememberMeeting(int cell, int nextCell, AbsoluteDirection direction, boolean isForward) {
+		if (isForward) {
+			meetingCell = cell;
+			meetingNeighbour = nextCell;
+			meetingDirection = direction;
+		} else {
+			meetingCell = nextCell;
+			meetingNeighbour = cell;
+			meetingDirection = direction.getOpposite();
+		}
+	}
+
+	private void visit(int cell, int mark, int distance, int directionIndex, IntQueue queue) {
+		marks[cell] = mark;
+		distances[cell] = distance;
+		directions[cell] = (byte)directionIndex;
+		queue.enqueue(cell);
+	}
+
+	private void nextMarks() {
+		if (backwardMark >= Integer.MAX_VALUE - 2) {
+			Arrays.fill(marks, 0);
+			backwardMark = 0;
+		}
+		forwardMark = backwardMark + 1;
+		backwardMark = backwardMark + 2;
+	}
+
+	private void checkRoom(Room room) {
+		if (room.getMaze() != maze) {
+			throw new IllegalArgumentException(room + " is not in the maze of this path finder");
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+/**
+ * Generates a maze by connecting every cell to its northern or western neighbour.
+ * This is the fastest generator and needs no memory besides the grid, but the mazes are biased:
+ * the northern row and the western column are long straight corridors
+ * @author Manuel
+ *
+ */
+public class BinaryTreeGenerator implements MazeGenerator {
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			boolean canGoNorth = grid.getY(cell) > 0;
+			boolean canGoWest = grid.getX(cell) > 0;
+
+			if (canGoNorth && canGoWest) {
+				grid.connect(cell, random.nextBoolean() ? AbsoluteDirection.NORTH : AbsoluteDirection.WEST);
+			} else if (canGoNorth) {
+				grid.connect(cell, AbsoluteDirection.NORTH);
+			} else if (canGoWest) {
+				grid.connect(cell, AbsoluteDirection.WEST);
+			}
+		}
+	}
+}
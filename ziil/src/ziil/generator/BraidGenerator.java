@@ -0,0 +1,66 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+/**
+ * Turns the perfect maze of another generator into a braided one, which has loops.
+ * After the other generator is done, every dead end is opened into a neighbouring cell with a given probability,
+ * preferring neighbours that are dead ends themselves, so one door can remove two dead ends
+ * and more dead ends disappear than the probability suggests.
+ * The cells are processed row by row and no memory is needed besides the grid, so it works on grids of any size
+ * @author Manuel
+ *
+ */
+public class BraidGenerator implements MazeGenerator {
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private final MazeGenerator generator;
+	private final double deadEndRemoval;
+
+	/**
+	 * Creates a generator
+	 * @param generator The generator that carves the perfect maze
+	 * @param deadEndRemoval The probability that a dead end is opened, between 0 (a perfect maze)
+	 * and 1 (a maze without any dead ends)
+	 */
+	public BraidGenerator(MazeGenerator generator, double deadEndRemoval) {
+		if (!(deadEndRemoval >= 0 && deadEndRemoval <= 1)) {
+			throw new IllegalArgumentException("Dead end removal " + deadEndRemoval + " is out of range");
+		}
+		this.generator = generator;
+		this.deadEndRemoval = deadEndRemoval;
+	}
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		generator.generate(grid, random);
+
+		int[] possibleDirections = new int[DIRECTIONS.length];
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			// A dead end may already have been opened by one of its neighbours
+			if (Integer.bitCount(grid.getExits(cell)) != 1 || random.nextDouble() >= deadEndRemoval) {
+				continue;
+			}
+
+			int count = 0;
+			boolean foundDeadEnd = false;
+			for (int i = 0; i < DIRECTIONS.length; i++) {
+				long neighbour = grid.getNeighbour(cell, DIRECTIONS[i]);
+				if (neighbour < 0 || grid.hasExit(cell, DIRECTIONS[i])) {
+					continue;
+				}
+				boolean isDeadEnd = Integer.bitCount(grid.getExits(neighbour)) == 1;
+				if (isDeadEnd && !foundDeadEnd) {
+					count = 0;
+					foundDeadEnd = true;
+				}
+				if (isDeadEnd == foundDeadEnd) {
+					possibleDirections[count++] = i;
+				}
+			}
+			grid.connect(cell, DIRECTIONS[possibleDirections[random.nextInt(count)]]);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package ziil.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.util.UnionFind;
+
+/**
+ * Generates a maze row by row with Eller's algorithm.
+ * Only the sets of the current row are kept, so besides the grid it needs O(width) memory
+ * @author Manuel
+ *
+ */
+public class EllerGenerator implements MazeGenerator {
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		// The set of each column in the current row. Sets are labelled with a column of the previous row,
+		// or with width+column for a cell that has no door to the north
+		int[] labels = new int[width];
+		int[] firstColumnWithLabel = new int[2 * width];
+		int[] lastColumnInSet = new int[width];
+		boolean[] hasDoorSouth = new boolean[width];
+		UnionFind sets = new UnionFind(width);
+
+		for (int x = 0; x < width; x++) {
+			labels[x] = width + x;
+		}
+
+		for (int y = 0; y < height; y++) {
+			boolean isLastRow = y == height - 1;
+
+			sets.reset();
+			Arrays.fill(firstColumnWithLabel, -1);
+			for (int x = 0; x < width; x++) {
+				int label = labels[x];
+				if (firstColumnWithLabel[label] < 0) {
+					firstColumnWithLabel[label] = x;
+				} else {
+					sets.union(firstColumnWithLabel[label], x);
+				}
+			}
+
+			// Join neighbours of different sets. In the last row all of them have to be joined
+			for (int x = 0; x < width - 1; x++) {
+				if (sets.find(x) != sets.find(x + 1) && (isLastRow || random.nextBoolean())) {
+					grid.connect(grid.getCell(x, y), AbsoluteDirection.EAST);
+					sets.union(x, x + 1);
+				}
+			}
+
+			if (isLastRow) {
+				break;
+			}
+
+			// Every set needs at least one door to the south, otherwise it would be cut off
+			for (int x = 0; x < width; x++) {
+				lastColumnInSet[sets.find(x)] = x;
+				hasDoorSouth[x] = false;
+			}
+			for (int x = 0; x < width; x++) {
+				int set = sets.find(x);
+				boolean isLastChance = lastColumnInSet[set] == x && !hasDoorSouth[set];
+				if (isLastChance || random.nextBoolean()) {
+					grid.connect(grid.getCell(x, y), AbsoluteDirection.SOUTH);
+					hasDoorSouth[set] = true;
+					labels[x] = set;
+				} else {
+					labels[x] = width + x;
+				}
+			}
+		}
+	}
+}
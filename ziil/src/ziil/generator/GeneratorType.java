@@ -0,0 +1,94 @@
+package ziil.generator;
+
+/**
+ * The available maze generation algorithms. All of them produce perfect mazes, except {@link #BRAIDED} and
+ * {@link #BRAIDED_WEIGHTED}, which have loops. {@link #WEIGHTED} and {@link #BRAIDED_WEIGHTED} give their doors weights
+ * @author Manuel
+ *
+ */
+public enum GeneratorType {
+	BACKTRACKER,
+	KRUSKAL,
+	PRIM,
+	ELLER,
+	WILSON,
+	BINARY_TREE,
+	SIDEWINDER,
+	PARALLEL,
+	/**
+	 * A backtracker maze with {@link #BRAID_DEAD_END_REMOVAL} of its dead ends opened, see {@link BraidGenerator}
+	 */
+	BRAIDED,
+	/**
+	 * A backtracker maze with door weights up to {@link #MAX_DOOR_WEIGHT}, see {@link WeightedDoorGenerator}
+	 */
+	WEIGHTED,
+	/**
+	 * A braided backtracker maze with door weights
+	 */
+	BRAIDED_WEIGHTED;
+
+	/**
+	 * The probability that a dead end is opened in a braided maze
+	 */
+	public static final double BRAID_DEAD_END_REMOVAL = 0.5;
+	/**
+	 * The highest door weight of a weighted maze
+	 */
+	public static final int MAX_DOOR_WEIGHT = 9;
+
+	/**
+	 * Creates a generator that uses this algorithm
+	 * @return The generator
+	 */
+	public MazeGenerator create() {
+		switch (this) {
+			case KRUSKAL:
+				return new KruskalGenerator();
+			case PRIM:
+				return new PrimGenerator();
+			case ELLER:
+				return new EllerGenerator();
+			case WILSON:
+				return new WilsonGenerator();
+			case BINARY_TREE:
+				return new BinaryTreeGenerator();
+			case SIDEWINDER:
+				return new SidewinderGenerator();
+			case PARALLEL:
+				return new ParallelGenerator();
+			case BRAIDED:
+				return new BraidGenerator(new RecursiveBacktrackerGenerator(), BRAID_DEAD_END_REMOVAL);
+			case WEIGHTED:
+				return new WeightedDoorGenerator(new RecursiveBacktrackerGenerator(), MAX_DOOR_WEIGHT);
+			case BRAIDED_WEIGHTED:
+				return new WeightedDoorGenerator(
+						new BraidGenerator(new RecursiveBacktrackerGenerator(), BRAID_DEAD_END_REMOVAL), MAX_DOOR_WEIGHT);
+			default:
+				return new RecursiveBacktrackerGenerator();
+		}
+	}
+
+	/**
+	 * Gets the type with a name, as returned by {@link #toString()}
+	 * @param name The name of the type, e.g. "kruskal" or "binary-tree"
+	 * @return The type
+	 */
+	public static GeneratorType fromName(String name) {
+		for (GeneratorType type : values()) {
+			if (type.toString().equals(name)) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("There is no generator called " + name);
+	}
+
+	/**
+	 * The String representation of this object
+	 * @return The String representation
+	 */
+	@Override
+	public String toString() {
+		return this.name().toLowerCase().replace('_', '-');
+	}
+}
@@ -0,0 +1,59 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.util.UnionFind;
+
+/**
+ * Generates a maze with a randomized version of Kruskal's algorithm.
+ * All walls are shuffled and every wall between two unconnected parts is removed, tracked with a union-find.
+ * It needs O(cells) memory for the wall list and the union-find, and the walls are numbered with ints,
+ * so it can't generate grids with more than {@value #MAX_CELLS} cells
+ * @author Manuel
+ *
+ */
+public class KruskalGenerator implements MazeGenerator {
+	private static final int MAX_CELLS = Integer.MAX_VALUE / 2;
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int cellCount = grid.getArrayCellCount();
+		if (cellCount > MAX_CELLS) {
+			throw new UnsupportedOperationException("A grid of " + width + "x" + height + " has too many cells for this algorithm");
+		}
+
+		// A wall is stored as cell*2 for the wall to the east and cell*2+1 for the wall to the south
+		int[] walls = new int[(width - 1) * height + width * (height - 1)];
+		int wallCount = 0;
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (grid.getX(cell) < width - 1) {
+				walls[wallCount++] = cell * 2;
+			}
+			if (grid.getY(cell) < height - 1) {
+				walls[wallCount++] = cell * 2 + 1;
+			}
+		}
+
+		for (int i = wallCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = walls[i];
+			walls[i] = walls[j];
+			walls[j] = swap;
+		}
+
+		UnionFind sets = new UnionFind(cellCount);
+		int connections = 0;
+		for (int i = 0; i < wallCount && connections < cellCount - 1; i++) {
+			int cell = walls[i] >>> 1;
+			AbsoluteDirection direction = (walls[i] & 1) == 0 ? AbsoluteDirection.EAST : AbsoluteDirection.SOUTH;
+			if (sets.union(cell, (int)grid.getNeighbourBehindExit(cell, direction))) {
+				grid.connect(cell, direction);
+				connections++;
+			}
+		}
+	}
+}
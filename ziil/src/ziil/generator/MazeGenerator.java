@@ -0,0 +1,24 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.Grid;
+
+/**
+ * Carves the doors of a maze into a grid. Every cell of the result is reachable from every other cell.
+ * Implementations differ in speed, memory use and the look of the resulting maze.
+ * The algorithms produce perfect mazes, which have no loops, so there is exactly one path between two cells.
+ * {@link BraidGenerator} wraps another generator and deliberately adds loops, so code that relies on a single path
+ * must not assume a perfect maze. {@link WeightedDoorGenerator} wraps another generator to add door weights
+ * @author Manuel
+ *
+ */
+public interface MazeGenerator {
+	/**
+	 * Connects all cells of a grid that has no exits yet
+	 * @param grid The grid to carve the doors into
+	 * @param random The source of randomness. The same seed produces the same maze.
+	 * Every maze gets its own instance, so mazes can be generated in parallel without contention
+	 */
+	void generate(Grid grid, SplittableRandom random);
+}
@@ -0,0 +1,196 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.util.IntStack;
+import ziil.util.UnionFind;
+
+/**
+ * Generates a maze on several cores at once.
+ * The grid is split into square tiles (the ones at the eastern and southern border may be smaller), and every tile gets its own maze from a randomized depth-first search
+ * with its own seed. The tiles are then stitched together with Kruskal's algorithm on the tiles:
+ * a union-find over the tiles opens exactly one door between tiles that aren't connected yet,
+ * so the result is still a perfect maze. The same seed produces the same maze, regardless of the number of cores
+ * @author Manuel
+ *
+ */
+public class ParallelGenerator implements MazeGenerator {
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private static final int DEFAULT_TILE_SIZE = 256;
+	// Tiles are handed out to the pool in batches of this many, so small tiles don't drown in task overhead
+	private static final int TILES_PER_TASK = 4;
+	private final int tileSize;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a generator with the default tile size that runs on the common pool
+	 */
+	public ParallelGenerator() {
+		this(DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a generator
+	 * @param tileSize The length of one side of a tile
+	 * @param pool The pool that generates the tiles
+	 */
+	public ParallelGenerator(int tileSize, ForkJoinPool pool) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("Tile size " + tileSize + " is too low!");
+		}
+		this.tileSize = tileSize;
+		this.pool = pool;
+	}
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		int tilesAcross = (grid.getWidth() + tileSize - 1) / tileSize;
+		int tilesDown = (grid.getHeight() + tileSize - 1) / tileSize;
+		int tileCount = tilesAcross * tilesDown;
+
+		// Tiles only write to their own cells, so they can be carved concurrently
+		long[] tileSeeds = new long[tileCount];
+		for (int tile = 0; tile < tileCount; tile++) {
+			tileSeeds[tile] = random.nextLong();
+		}
+		pool.invoke(new TileTask(grid, tilesAcross, tileSeeds, 0, tileCount));
+
+		stitchTiles(grid, tilesAcross, tilesDown, random);
+	}
+
+	private void stitchTiles(Grid grid, int tilesAcross, int tilesDown, SplittableRandom random) {
+		int tileCount = tilesAcross * tilesDown;
+
+		// A boundary is stored as tile*2 for the boundary to the east and tile*2+1 for the boundary to the south
+		int[] boundaries = new int[(tilesAcross - 1) * tilesDown + tilesAcross * (tilesDown - 1)];
+		int boundaryCount = 0;
+		for (int tile = 0; tile < tileCount; tile++) {
+			if (tile % tilesAcross < tilesAcross - 1) {
+				boundaries[boundaryCount++] = tile * 2;
+			}
+			if (tile / tilesAcross < tilesDown - 1) {
+				boundaries[boundaryCount++] = tile * 2 + 1;
+			}
+		}
+
+		for (int i = boundaryCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = boundaries[i];
+			boundaries[i] = boundaries[j];
+			boundaries[j] = swap;
+		}
+
+		UnionFind tiles = new UnionFind(tileCount);
+		for (int i = 0; i < boundaryCount; i++) {
+			int tile = boundaries[i] >>> 1;
+			boolean isEastBoundary = (boundaries[i] & 1) == 0;
+			int neighbourTile = isEastBoundary ? tile + 1 : tile + tilesAcross;
+			if (!tiles.union(tile, neighbourTile)) {
+				continue;
+			}
+
+			int tileX = (tile % tilesAcross) * tileSize;
+			int tileY = (tile / tilesAcross) * tileSize;
+			if (isEastBoundary) {
+				int height = Math.min(tileSize, grid.getHeight() - tileY);
+				int doorY = tileY + random.nextInt(height);
+				grid.connect(grid.getCell(tileX + tileSize - 1, doorY), AbsoluteDirection.EAST);
+			} else {
+				int width = Math.min(tileSize, grid.getWidth() - tileX);
+				int doorX = tileX + random.nextInt(width);
+				grid.connect(grid.getCell(doorX, tileY + tileSize - 1), AbsoluteDirection.SOUTH);
+			}
+		}
+	}
+
+	/**
+	 * Carves a perfect maze into the cells of one tile, with a randomized depth-first search
+	 */
+	private void generateTile(Grid grid, int tilesAcross, int tile, SplittableRandom random) {
+		int left = (tile % tilesAcross) * tileSize;
+		int top = (tile / tilesAcross) * tileSize;
+		int width = Math.min(tileSize, grid.getWidth() - left);
+		int height = Math.min(tileSize, grid.getHeight() - top);
+
+		// Cells are addressed relative to the tile here, so the scratch space only depends on the tile size
+		boolean[] visitedCells = new boolean[width * height];
+		int[] possibleDirections = new int[DIRECTIONS.length];
+		IntStack stack = new IntStack();
+		int visitedCount = 0;
+		int currentCell = 0;
+
+		while (visitedCount != visitedCells.length) {
+			if (!visitedCells[currentCell]) {
+				visitedCells[currentCell] = true;
+				visitedCount++;
+			}
+
+			int x = currentCell % width;
+			int y = currentCell / width;
+			int count = 0;
+			if (y > 0 && !visitedCells[currentCell - width]) {
+				possibleDirections[count++] = AbsoluteDirection.NORTH.getIndex();
+			}
+			if (x < width - 1 && !visitedCells[currentCell + 1]) {
+				possibleDirections[count++] = AbsoluteDirection.EAST.getIndex();
+			}
+			if (y < height - 1 && !visitedCells[currentCell + width]) {
+				possibleDirections[count++] = AbsoluteDirection.SOUTH.getIndex();
+			}
+			if (x > 0 && !visitedCells[currentCell - 1]) {
+				possibleDirections[count++] = AbsoluteDirection.WEST.getIndex();
+			}
+
+			if (count > 0) {
+				AbsoluteDirection direction = DIRECTIONS[possibleDirections[random.nextInt(count)]];
+				stack.push(currentCell);
+				grid.connect(grid.getCell(left + x, top + y), direction);
+				currentCell = getNeighbour(currentCell, width, direction);
+			} else if (!stack.isEmpty()) {
+				currentCell = stack.pop();
+			}
+		}
+	}
+
+	private static int getNeighbour(int cell, int width, AbsoluteDirection direction) {
+		return cell + direction.getDeltaY() * width + direction.getDeltaX();
+	}
+
+	/**
+	 * Generates a range of tiles, splitting it in halves until it is small enough
+	 */
+	private final class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Grid grid;
+		private final int tilesAcross;
+		private final long[] tileSeeds;
+		private final int firstTile;
+		private final int endTile;
+
+		private TileTask(Grid grid, int tilesAcross, long[] tileSeeds, int firstTile, int endTile) {
+			this.grid = grid;
+			this.tilesAcross = tilesAcross;
+			this.tileSeeds = tileSeeds;
+			this.firstTile = firstTile;
+			this.endTile = endTile;
+		}
+
+		@Override
+		protected void compute() {
+			if (endTile - firstTile <= TILES_PER_TASK) {
+				for (int tile = firstTile; tile < endTile; tile++) {
+					generateTile(grid, tilesAcross, tile, new SplittableRandom(tileSeeds[tile]));
+				}
+				return;
+			}
+
+			int middle = (firstTile + endTile) >>> 1;
+			invokeAll(new TileTask(grid, tilesAcross, tileSeeds, firstTile, middle),
+					new TileTask(grid, tilesAcross, tileSeeds, middle, endTile));
+		}
+	}
+}
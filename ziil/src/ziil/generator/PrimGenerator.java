@@ -0,0 +1,61 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+/**
+ * Generates a maze with a randomized version of Prim's algorithm.
+ * The maze grows from one cell by connecting a random cell of its frontier to the maze.
+ * It produces many short dead ends and needs O(cells) memory
+ * @author Manuel
+ *
+ */
+public class PrimGenerator implements MazeGenerator {
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private static final byte OUTSIDE = 0;
+	private static final byte FRONTIER = 1;
+	private static final byte INSIDE = 2;
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		int cellCount = grid.getArrayCellCount();
+		byte[] states = new byte[cellCount];
+		int[] frontier = new int[cellCount];
+		int frontierCount = 0;
+		int[] possibleDirections = new int[DIRECTIONS.length];
+
+		int startCell = random.nextInt(cellCount);
+		states[startCell] = INSIDE;
+		frontierCount = addFrontier(grid, startCell, states, frontier, frontierCount);
+
+		while (frontierCount > 0) {
+			int index = random.nextInt(frontierCount);
+			int cell = frontier[index];
+			frontier[index] = frontier[--frontierCount];
+
+			int count = 0;
+			for (int i = 0; i < DIRECTIONS.length; i++) {
+				int neighbour = (int)grid.getNeighbour(cell, DIRECTIONS[i]);
+				if (neighbour >= 0 && states[neighbour] == INSIDE) {
+					possibleDirections[count++] = i;
+				}
+			}
+			grid.connect(cell, DIRECTIONS[possibleDirections[random.nextInt(count)]]);
+			states[cell] = INSIDE;
+			frontierCount = addFrontier(grid, cell, states, frontier, frontierCount);
+		}
+	}
+
+	private int addFrontier(Grid grid, int cell, byte[] states, int[] frontier, int frontierCount) {
+		for (AbsoluteDirection direction : DIRECTIONS) {
+			int neighbour = (int)grid.getNeighbour(cell, direction);
+			if (neighbour >= 0 && states[neighbour] == OUTSIDE) {
+				states[neighbour] = FRONTIER;
+				frontier[frontierCount++] = neighbour;
+			}
+		}
+		return frontierCount;
+	}
+}
@@ -0,0 +1,60 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.util.IntStack;
+
+/**
+ * Generates a maze with a randomized depth-first search.
+ * It produces long, winding corridors and needs O(cells) memory for the visited cells and the stack
+ * @author Manuel
+ *
+ */
+public class RecursiveBacktrackerGenerator implements MazeGenerator {
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		IntStack stack = new IntStack();
+		int cellCount = grid.getArrayCellCount();
+		boolean[] visitedCells = new boolean[cellCount];
+		int[] possibleDirections = new int[DIRECTIONS.length];
+		int visitedCount = 0;
+
+		int currentCell = (int)grid.getCell(0, 0);
+
+		while (visitedCount != cellCount) {
+			if (!visitedCells[currentCell]) {
+				visitedCells[currentCell] = true;
+				visitedCount++;
+			}
+			AbsoluteDirection direction = getRandomUnvisitedNeighbour(grid, currentCell, visitedCells, possibleDirections, random);
+			if (direction != null) {
+				stack.push(currentCell);
+				grid.connect(currentCell, direction);
+				currentCell = (int)grid.getNeighbourBehindExit(currentCell, direction);
+			} else if (!stack.isEmpty()) {
+				currentCell = stack.pop();
+			}
+		}
+	}
+
+	private AbsoluteDirection getRandomUnvisitedNeighbour(Grid grid, int cell, boolean[] visitedCells,
+			int[] possibleDirections, SplittableRandom random) {
+		int count = 0;
+		for (int i = 0; i < DIRECTIONS.length; i++) {
+			int neighbour = (int)grid.getNeighbour(cell, DIRECTIONS[i]);
+			if (neighbour >= 0 && !visitedCells[neighbour]) {
+				possibleDirections[count++] = i;
+			}
+		}
+
+		if (count == 0) {
+			return null;
+		}
+
+		return DIRECTIONS[possibleDirections[random.nextInt(count)]];
+	}
+}
@@ -0,0 +1,41 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+/**
+ * Generates a maze row by row with the sidewinder algorithm.
+ * Each row is split into runs of connected cells, and every run gets one door to the north.
+ * It is almost as fast as the {@link BinaryTreeGenerator}, needs no memory besides the grid,
+ * and only has the northern row as a long straight corridor
+ * @author Manuel
+ *
+ */
+public class SidewinderGenerator implements MazeGenerator {
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+
+		for (int x = 0; x < width - 1; x++) {
+			grid.connect(grid.getCell(x, 0), AbsoluteDirection.EAST);
+		}
+
+		for (int y = 1; y < height; y++) {
+			int runStart = 0;
+			for (int x = 0; x < width; x++) {
+				boolean closeRun = x == width - 1 || random.nextBoolean();
+				if (closeRun) {
+					int doorX = runStart + random.nextInt(x - runStart + 1);
+					grid.connect(grid.getCell(doorX, y), AbsoluteDirection.NORTH);
+					runStart = x + 1;
+				} else {
+					grid.connect(grid.getCell(x, y), AbsoluteDirection.EAST);
+				}
+			}
+		}
+	}
+}
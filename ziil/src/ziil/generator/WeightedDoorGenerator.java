@@ -0,0 +1,49 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+/**
+ * Gives the doors of the maze of another generator random weights, so some doors cost more to walk through than others.
+ * Every wall between two cells gets a weight, whether it has a door or not, so it doesn't matter whether this generator
+ * wraps a {@link BraidGenerator} or the other way round. The weights need a byte per cell
+ * @author Manuel
+ *
+ */
+public class WeightedDoorGenerator implements MazeGenerator {
+	private final MazeGenerator generator;
+	private final int maxWeight;
+
+	/**
+	 * Creates a generator
+	 * @param generator The generator that carves the maze
+	 * @param maxWeight The highest weight, up to {@link Grid#MAX_DOOR_WEIGHT}. The weights are evenly distributed
+	 * between 1 and this
+	 */
+	public WeightedDoorGenerator(MazeGenerator generator, int maxWeight) {
+		if (maxWeight < 1 || maxWeight > Grid.MAX_DOOR_WEIGHT) {
+			throw new IllegalArgumentException("Max weight " + maxWeight + " is out of range");
+		}
+		this.generator = generator;
+		this.maxWeight = maxWeight;
+	}
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		generator.generate(grid, random);
+
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				long cell = grid.getCell(x, y);
+				if (x < grid.getWidth() - 1) {
+					grid.setDoorWeight(cell, AbsoluteDirection.EAST, 1 + random.nextInt(maxWeight));
+				}
+				if (y < grid.getHeight() - 1) {
+					grid.setDoorWeight(cell, AbsoluteDirection.SOUTH, 1 + random.nextInt(maxWeight));
+				}
+			}
+		}
+	}
+}
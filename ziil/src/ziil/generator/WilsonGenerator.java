@@ -0,0 +1,55 @@
+package ziil.generator;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+/**
+ * Generates a maze with Wilson's algorithm, which uses loop-erased random walks.
+ * Every possible maze is equally likely, but the first walks take long on big grids.
+ * It needs O(cells) memory
+ * @author Manuel
+ *
+ */
+public class WilsonGenerator implements MazeGenerator {
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+
+	@Override
+	public void generate(Grid grid, SplittableRandom random) {
+		int cellCount = grid.getArrayCellCount();
+		boolean[] inMaze = new boolean[cellCount];
+		// The direction in which the current walk last left a cell. Revisiting a cell overwrites it, which erases the loop
+		byte[] walkDirections = new byte[cellCount];
+		int[] possibleDirections = new int[DIRECTIONS.length];
+
+		inMaze[random.nextInt(cellCount)] = true;
+
+		for (int startCell = 0; startCell < cellCount; startCell++) {
+			if (inMaze[startCell]) {
+				continue;
+			}
+
+			int cell = startCell;
+			while (!inMaze[cell]) {
+				int count = 0;
+				for (int i = 0; i < DIRECTIONS.length; i++) {
+					if (grid.getNeighbour(cell, DIRECTIONS[i]) >= 0) {
+						possibleDirections[count++] = i;
+					}
+				}
+				int directionIndex = possibleDirections[random.nextInt(count)];
+				walkDirections[cell] = (byte)directionIndex;
+				cell = (int)grid.getNeighbourBehindExit(cell, DIRECTIONS[directionIndex]);
+			}
+
+			cell = startCell;
+			while (!inMaze[cell]) {
+				AbsoluteDirection direction = DIRECTIONS[walkDirections[cell]];
+				grid.connect(cell, direction);
+				inMaze[cell] = true;
+				cell = (int)grid.getNeighbourBehindExit(cell, direction);
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package ziil.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Reuses direct byte buffers of one size, so connections only hold a buffer while they have something to send.
+ * Direct buffers are expensive to allocate and are only freed by the garbage collector, so they shouldn't
+ * be created for every write. A pool is not thread-safe, every event loop has its own
+ * @author Manuel
+ *
+ */
+public class BufferPool {
+	private final int bufferSize;
+	private final int maxPooledBuffers;
+	private final ArrayDeque<ByteBuffer> buffers;
+
+	/**
+	 * Creates an empty pool
+	 * @param bufferSize The capacity of every buffer
+	 * @param maxPooledBuffers The number of returned buffers that are kept. Further buffers are left to the garbage collector
+	 */
+	public BufferPool(int bufferSize, int maxPooledBuffers) {
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+		this.buffers = new ArrayDeque<>();
+	}
+
+	/**
+	 * Takes a buffer from the pool, or allocates a new one if the pool is empty
+	 * @return An empty buffer
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.pollLast();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. It must not be used anymore afterwards
+	 * @param buffer A buffer from {@link #acquire()}
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffers.size() < maxPooledBuffers) {
+			buffers.addLast(buffer);
+		}
+	}
+
+	/**
+	 * Gets the number of buffers that are waiting to be reused
+	 * @return The number of buffers
+	 */
+	public int size() {
+		return buffers.size();
+	}
+}
@@ -0,0 +1,107 @@
+package ziil.io;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads lines from a channel through one large direct buffer, without creating a String per line.
+ * Reading from a file or a redirected standard input fills the buffer with many lines at once,
+ * so scripts are replayed at the speed of the parser instead of one system call per line
+ * @author Manuel
+ *
+ */
+public class LineReader implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private boolean endOfInput;
+
+	/**
+	 * Creates a reader
+	 * @param channel The channel to read from. It must be in blocking mode
+	 */
+	public LineReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.flip();
+	}
+
+	/**
+	 * Creates a reader for a file, e.g. a script of commands
+	 * @param file The file
+	 * @return The reader
+	 * @throws IOException If the file can't be opened
+	 */
+	public static LineReader open(Path file) throws IOException {
+		return new LineReader(FileChannel.open(file, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Creates a reader for the standard input of the process. Nothing else should read from {@link System#in} anymore
+	 * @return The reader
+	 */
+	public static LineReader standardInput() {
+		return new LineReader(new FileInputStream(FileDescriptor.in).getChannel());
+	}
+
+	/**
+	 * Reads the next line. Bytes that don't fit into the line buffer are dropped
+	 * @param line The buffer for the line
+	 * @return The length of the line without the line break, or -1 if there are no more lines
+	 * @throws IOException If the channel can't be read
+	 */
+	public int readLine(byte[] line) throws IOException {
+		int length = 0;
+		boolean hasLine = false;
+		while (true) {
+			if (!buffer.hasRemaining() && !fill()) {
+				break;
+			}
+			hasLine = true;
+			byte nextByte = buffer.get();
+			if (nextByte == '\n') {
+				break;
+			}
+			if (length < line.length) {
+				line[length++] = nextByte;
+			}
+		}
+
+		if (!hasLine) {
+			return -1;
+		}
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private boolean fill() throws IOException {
+		if (endOfInput) {
+			return false;
+		}
+		buffer.clear();
+		int count = 0;
+		while (count == 0) {
+			count = channel.read(buffer);
+		}
+		buffer.flip();
+		if (count < 0) {
+			endOfInput = true;
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,60 @@
+package ziil.io;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes text to a channel through one direct buffer. The text of one call is encoded completely and
+ * written with a single system call if it fits into the buffer, so the answer to a command and the following prompt
+ * leave the process together instead of line by line through the synchronized {@link System#out}
+ * @author Manuel
+ *
+ */
+public class TextOutput implements Closeable {
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates an output
+	 * @param channel The channel to write to. It must be in blocking mode
+	 */
+	public TextOutput(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates an output for the standard output of the process
+	 * @return The output
+	 */
+	public static TextOutput standardOutput() {
+		return new TextOutput(new FileOutputStream(FileDescriptor.out).getChannel());
+	}
+
+	/**
+	 * Writes text
+	 * @param text The text
+	 * @throws IOException If the channel can't be written
+	 */
+	public void write(CharSequence text) throws IOException {
+		int index = 0;
+		do {
+			buffer.clear();
+			index = Utf8.encode(text, index, text.length(), buffer);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} while (index < text.length());
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
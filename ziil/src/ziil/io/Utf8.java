@@ -0,0 +1,67 @@
+package ziil.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes text as UTF-8 directly into a byte buffer, without an intermediate String or byte array
+ * @author Manuel
+ *
+ */
+public final class Utf8 {
+	private static final byte REPLACEMENT = '?';
+
+	private Utf8() {
+	}
+
+	/**
+	 * Encodes as many whole characters as fit into a buffer
+	 * @param text The text
+	 * @param start The index of the first character to encode
+	 * @param end The index after the last character to encode
+	 * @param target The buffer to write to
+	 * @return The index of the first character that didn't fit, or end if everything was encoded
+	 */
+	public static int encode(CharSequence text, int start, int end, ByteBuffer target) {
+		int index = start;
+		while (index < end) {
+			char character = text.charAt(index);
+			if (character < 0x80) {
+				if (!target.hasRemaining()) {
+					break;
+				}
+				target.put((byte)character);
+			} else if (character < 0x800) {
+				if (target.remaining() < 2) {
+					break;
+				}
+				target.put((byte)(0xC0 | (character >>> 6)));
+				target.put((byte)(0x80 | (character & 0x3F)));
+			} else if (Character.isHighSurrogate(character) && index + 1 < end
+					&& Character.isLowSurrogate(text.charAt(index + 1))) {
+				if (target.remaining() < 4) {
+					break;
+				}
+				int codePoint = Character.toCodePoint(character, text.charAt(index + 1));
+				target.put((byte)(0xF0 | (codePoint >>> 18)));
+				target.put((byte)(0x80 | ((codePoint >>> 12) & 0x3F)));
+				target.put((byte)(0x80 | ((codePoint >>> 6) & 0x3F)));
+				target.put((byte)(0x80 | (codePoint & 0x3F)));
+				index++;
+			} else if (Character.isSurrogate(character)) {
+				if (!target.hasRemaining()) {
+					break;
+				}
+				target.put(REPLACEMENT);
+			} else {
+				if (target.remaining() < 3) {
+					break;
+				}
+				target.put((byte)(0xE0 | (character >>> 12)));
+				target.put((byte)(0x80 | ((character >>> 6) & 0x3F)));
+				target.put((byte)(0x80 | (character & 0x3F)));
+			}
+			index++;
+		}
+		return index;
+	}
+}
@@ -0,0 +1,344 @@
+package ziil.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Appends commands to numbered segment files on a background thread.
+ * Callers only put the command into a queue. The writer thread takes everything that has queued up in the meantime,
+ * writes it with a single write and forces it according to the {@link SyncPolicy}, so many commands share one fsync.
+ *
+ * Segment file: a header (int magic, short version, short reserved, long seed of the maze), followed by records.
+ * Record: int length of the body, the body (long session id, long sequence, command word, second word) and the CRC32
+ * of the body. A word is written as a short length and its UTF-8 bytes, a missing word has the length -1.
+ * A record with the sequence 0 isn't a command, it opens a session and its command word is the session's resume token
+ * @author Manuel
+ *
+ */
+final class CommandLog {
+	static final int MAGIC = 0x5A4C4F47;
+	static final short VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	// Longer words can't be commands anyway, they are cut off so a record always fits into the scratch buffer
+	static final int MAX_WORD_BYTES = 1024;
+	static final int MAX_BODY_SIZE = 2 * Long.BYTES + 2 * (Short.BYTES + MAX_WORD_BYTES);
+	private static final String SEGMENT_PREFIX = "commands-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int QUEUE_CAPACITY = 64 * 1024;
+	private static final int MAX_BATCH_SIZE = 4096;
+	private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+	private static final long SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private final Path directory;
+	private final SyncPolicy syncPolicy;
+	private final long mazeSeed;
+	private final BlockingQueue<Entry> queue;
+	private final Thread writerThread;
+	private final ByteBuffer writeBuffer;
+	private final ByteBuffer bodyBuffer;
+	private final CRC32 checksum;
+	private FileChannel channel;
+	private long segment;
+	private long lastSync;
+	private boolean unsynced;
+	private volatile IOException failure;
+	// Set once the writer thread has exited, after which nothing that is queued will ever be written
+	private volatile boolean stopped;
+
+	/**
+	 * Starts a log that writes into a new segment
+	 * @param directory The directory of the segments
+	 * @param firstSegment The number of the first segment. It must not exist yet
+	 * @param syncPolicy When to force the segments to the disk
+	 * @param mazeSeed The seed of the maze the commands are played in
+	 * @throws IOException If the segment can't be created
+	 */
+	CommandLog(Path directory, long firstSegment, SyncPolicy syncPolicy, long mazeSeed) throws IOException {
+		this.directory = directory;
+		this.syncPolicy = syncPolicy;
+		this.mazeSeed = mazeSeed;
+		this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		this.writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		this.bodyBuffer = ByteBuffer.allocate(MAX_BODY_SIZE);
+		this.checksum = new CRC32();
+		openSegment(firstSegment);
+
+		writerThread = new Thread(this::writeEntries, "ziil-command-log");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Gets the file of a segment
+	 * @param directory The directory of the segments
+	 * @param segment The number of the segment
+	 * @return The file
+	 */
+	static Path getSegmentFile(Path directory, long segment) {
+		return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Gets the number of a segment from its file name
+	 * @param file The file
+	 * @return The number, or -1 if the file isn't a segment
+	 */
+	static long getSegment(Path file) {
+		String name = file.getFileName().toString();
+		if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Queues a command. Only blocks if the writer has fallen behind by a full queue
+	 * @param sessionId The session that processed the command
+	 * @param sequence The number of the command within its session, starting at 1, or 0 for the resume token
+	 * @param commandWord The first word of the command, or null
+	 * @param secondWord The second word of the command, or null
+	 * @throws UncheckedIOException If the log couldn't be written
+	 */
+	void append(long sessionId, long sequence, String commandWord, String secondWord) {
+		put(new Entry(sessionId, sequence, commandWord, secondWord, null));
+	}
+
+	/**
+	 * Starts a new segment after all commands that have been queued so far
+	 * @return The number of the new segment
+	 * @throws IOException If the log couldn't be written
+	 */
+	long roll() throws IOException {
+		return await(Entry.ROLL);
+	}
+
+	/**
+	 * Writes all queued commands, forces them to the disk and stops the writer thread
+	 * @throws IOException If the log couldn't be written
+	 */
+	void close() throws IOException {
+		await(Entry.CLOSE);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private long await(String marker) throws IOException {
+		CompletableFuture<Long> done = new CompletableFuture<>();
+		try {
+			put(new Entry(0, 0, marker, null, done));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		try {
+			return done.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the command log", e);
+		} catch (ExecutionException e) {
+			throw new IOException("The command log failed", e.getCause());
+		}
+	}
+
+	private void put(Entry entry) {
+		checkStopped();
+		try {
+			queue.put(entry);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new IOException("Interrupted while appending to the command log", e));
+		}
+		// The writer may have stopped while the entry was being queued, then nobody would ever take it
+		if (stopped && queue.remove(entry)) {
+			checkStopped();
+		}
+	}
+
+	private void checkStopped() {
+		if (stopped) {
+			throw new UncheckedIOException(getStopCause());
+		}
+	}
+
+	private IOException getStopCause() {
+		IOException exception = failure;
+		return exception != null ? new IOException("The command log failed", exception)
+				: new IOException("The command log is closed");
+	}
+
+	private void writeEntries() {
+		List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		try {
+			while (true) {
+				Entry first = takeEntry();
+				if (first == null) {
+					// Nothing arrived within the sync interval, but the last batch still has to reach the disk
+					sync();
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+				for (Entry entry : batch) {
+					if (entry.done == null) {
+						writeRecord(entry);
+					} else if (entry.commandWord == Entry.ROLL) {
+						flush();
+						sync();
+						channel.close();
+						openSegment(segment + 1);
+						entry.done.complete(segment);
+					} else {
+						flush();
+						sync();
+						channel.close();
+						entry.done.complete(segment);
+						return;
+					}
+				}
+				flush();
+				if (syncPolicy == SyncPolicy.EVERY_BATCH
+						|| (syncPolicy == SyncPolicy.EVERY_SECOND && System.nanoTime() - lastSync >= SYNC_INTERVAL_NANOS)) {
+					sync();
+				}
+				batch.clear();
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			failure = new IOException("The command log writer was interrupted", e);
+		} catch (RuntimeException | Error e) {
+			failure = new IOException("The command log writer crashed", e);
+			throw e;
+		} finally {
+			stopped = true;
+			failEntries(batch);
+		}
+	}
+
+	/**
+	 * Waits for the next entry. With {@link SyncPolicy#EVERY_SECOND} and unsynced data, it only waits until the data
+	 * is due to be synced
+	 * @return The entry, or null if the data is due
+	 */
+	private Entry takeEntry() throws InterruptedException {
+		if (syncPolicy != SyncPolicy.EVERY_SECOND || !unsynced) {
+			return queue.take();
+		}
+		long remainingSyncNanos = SYNC_INTERVAL_NANOS - (System.nanoTime() - lastSync);
+		return queue.poll(Math.max(remainingSyncNanos, 0), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Releases everyone who waits for an entry that won't be processed anymore: the rest of the last batch and
+	 * everything that is still queued. Entries that were already processed keep their result
+	 */
+	private void failEntries(List<Entry> batch) {
+		queue.drainTo(batch);
+		IOException cause = getStopCause();
+		for (Entry entry : batch) {
+			if (entry.done != null) {
+				entry.done.completeExceptionally(cause);
+			}
+		}
+	}
+
+	private void writeRecord(Entry entry) throws IOException {
+		bodyBuffer.clear();
+		bodyBuffer.putLong(entry.sessionId);
+		bodyBuffer.putLong(entry.sequence);
+		putWord(entry.commandWord);
+		putWord(entry.secondWord);
+		bodyBuffer.flip();
+		checksum.reset();
+		checksum.update(bodyBuffer.array(), 0, bodyBuffer.limit());
+
+		if (writeBuffer.remaining() < Integer.BYTES + bodyBuffer.limit() + Integer.BYTES) {
+			flush();
+		}
+		writeBuffer.putInt(bodyBuffer.limit());
+		writeBuffer.put(bodyBuffer);
+		writeBuffer.putInt((int)checksum.getValue());
+	}
+
+	private void putWord(String word) {
+		if (word == null) {
+			bodyBuffer.putShort((short)-1);
+			return;
+		}
+		byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_WORD_BYTES);
+		bodyBuffer.putShort((short)length);
+		bodyBuffer.put(bytes, 0, length);
+	}
+
+	private void flush() throws IOException {
+		writeBuffer.flip();
+		if (writeBuffer.hasRemaining()) {
+			unsynced = true;
+		}
+		while (writeBuffer.hasRemaining()) {
+			channel.write(writeBuffer);
+		}
+		writeBuffer.clear();
+	}
+
+	private void sync() throws IOException {
+		if (unsynced && syncPolicy != SyncPolicy.NEVER) {
+			channel.force(false);
+		}
+		unsynced = false;
+		lastSync = System.nanoTime();
+	}
+
+	private void openSegment(long newSegment) throws IOException {
+		channel = FileChannel.open(getSegmentFile(directory, newSegment), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
+		segment = newSegment;
+		writeBuffer.clear();
+		writeBuffer.putInt(MAGIC);
+		writeBuffer.putShort(VERSION);
+		writeBuffer.putShort((short)0);
+		writeBuffer.putLong(mazeSeed);
+		flush();
+		sync();
+	}
+
+	/**
+	 * A queued command, or a marker that asks the writer to roll or close the log
+	 */
+	private static final class Entry {
+		private static final String ROLL = "roll";
+		private static final String CLOSE = "close";
+		private final long sessionId;
+		private final long sequence;
+		private final String commandWord;
+		private final String secondWord;
+		private final CompletableFuture<Long> done;
+
+		private Entry(long sessionId, long sequence, String commandWord, String secondWord, CompletableFuture<Long> done) {
+			this.sessionId = sessionId;
+			this.sequence = sequence;
+			this.commandWord = commandWord;
+			this.secondWord = secondWord;
+			this.done = done;
+		}
+	}
+}
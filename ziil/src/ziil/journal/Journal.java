@@ -0,0 +1,431 @@
+package ziil.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Command;
+import ziil.core.Grid;
+import ziil.core.Maze;
+import ziil.core.Room;
+import ziil.core.Session;
+
+/**
+ * Makes sessions survive a restart.
+ * Every processed command is appended to a write-ahead {@link CommandLog}, and the position of every session is
+ * written to a compact snapshot from time to time. On startup, the sessions are rebuilt from the last snapshot
+ * and the commands that were logged after it. Sessions that have finished are forgotten.
+ *
+ * Snapshot file: a header (int magic, short version, short reserved, long seed of the maze, long first segment
+ * to replay, long next session id, int number of sessions), one entry per session (long id, long sequence,
+ * long cell, byte direction, resume token as modified UTF-8, empty if there is none) and the CRC32 of everything
+ * before it. Version 1 snapshots stored the cell as an int and versions 1 and 2 had no resume tokens,
+ * they can still be read
+ * @author Manuel
+ *
+ */
+public class Journal implements Closeable {
+	private static final int SNAPSHOT_MAGIC = 0x5A534E50;
+	private static final short SNAPSHOT_VERSION = 3;
+	private static final short INT_CELL_SNAPSHOT_VERSION = 1;
+	private static final short TOKENLESS_SNAPSHOT_VERSION = 2;
+	private static final String SNAPSHOT_FILE = "snapshot.bin";
+	private static final String TEMPORARY_SNAPSHOT_FILE = "snapshot.tmp";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final AbsoluteDirection[] DIRECTIONS = AbsoluteDirection.values();
+	private final Path directory;
+	private final Maze maze;
+	// The latest state of every session that hasn't finished, as of its last logged command
+	private final Map<Long, SessionState> states;
+	private final Map<Long, Session> recoveredSessions;
+	private final AtomicLong nextSessionId;
+	private final CommandLog log;
+	private final ScheduledExecutorService snapshotExecutor;
+
+	/**
+	 * Opens a journal and recovers the sessions in it
+	 * @param directory The directory of the journal. It is created if it doesn't exist
+	 * @param maze The maze the sessions play in. It has to be the maze the journal was written for
+	 * @param syncPolicy When to force the logged commands to the disk
+	 * @param snapshotInterval The time between two snapshots in milliseconds, or 0 to only write snapshots
+	 * when {@link #snapshot()} is called
+	 * @throws IOException If the journal can't be read or written
+	 */
+	public Journal(Path directory, Maze maze, SyncPolicy syncPolicy, long snapshotInterval) throws IOException {
+		this.directory = directory;
+		this.maze = maze;
+		this.states = new ConcurrentHashMap<>();
+		Files.createDirectories(directory);
+
+		Map<Long, SessionState> snapshotStates = new HashMap<>();
+		long[] snapshotHeader = readSnapshot(snapshotStates);
+		long firstSegment = snapshotHeader[0];
+		long nextId = snapshotHeader[1];
+
+		List<Long> segments = listSegments();
+		Map<Long, Session> sessions = new HashMap<>();
+		Map<Long, Long> sequences = new HashMap<>();
+		Map<Long, String> resumeTokens = new HashMap<>();
+		for (SessionState state : snapshotStates.values()) {
+			Room room = maze.getRoom(maze.getGrid().getX(state.getCell()), maze.getGrid().getY(state.getCell()));
+			sessions.put(state.getSessionId(), new Session(room, DIRECTIONS[state.getDirectionIndex()]));
+			sequences.put(state.getSessionId(), state.getSequence());
+			if (state.getResumeToken() != null) {
+				resumeTokens.put(state.getSessionId(), state.getResumeToken());
+			}
+		}
+		long lastSegment = firstSegment - 1;
+		for (long segment : segments) {
+			lastSegment = Math.max(lastSegment, segment);
+			if (segment >= firstSegment) {
+				nextId = Math.max(nextId, replaySegment(segment, sessions, sequences, resumeTokens));
+			}
+		}
+
+		Map<Long, Session> recovered = new HashMap<>();
+		for (Map.Entry<Long, Session> entry : sessions.entrySet()) {
+			Session session = entry.getValue();
+			if (!session.isFinished()) {
+				long id = entry.getKey();
+				recovered.put(id, session);
+				states.put(id, captureState(id, sequences.get(id), session, resumeTokens.get(id)));
+			}
+		}
+		this.recoveredSessions = Collections.unmodifiableMap(recovered);
+		this.nextSessionId = new AtomicLong(nextId);
+		this.log = new CommandLog(directory, lastSegment + 1, syncPolicy, maze.getSeed());
+
+		if (snapshotInterval > 0) {
+			snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "ziil-snapshot");
+				thread.setDaemon(true);
+				return thread;
+			});
+			snapshotExecutor.scheduleWithFixedDelay(this::snapshotInBackground, snapshotInterval, snapshotInterval,
+					TimeUnit.MILLISECONDS);
+		} else {
+			snapshotExecutor = null;
+		}
+	}
+
+	/**
+	 * Gets the sessions that were rebuilt when the journal was opened
+	 * @return The unfinished sessions by their id
+	 */
+	public Map<Long, Session> getRecoveredSessions() {
+		return recoveredSessions;
+	}
+
+	/**
+	 * Reserves an id for a new session. Ids are never reused, not even after a restart
+	 * @return The id
+	 */
+	public long newSessionId() {
+		return nextSessionId.getAndIncrement();
+	}
+
+	/**
+	 * Gets the token a client needs to resume a session
+	 * @param sessionId The id of the session
+	 * @return The token, or null if the session is unknown, has finished or was recorded without a token
+	 */
+	public String getResumeToken(long sessionId) {
+		SessionState state = states.get(sessionId);
+		return state != null ? state.getResumeToken() : null;
+	}
+
+	/**
+	 * Records a command after a session has processed it. This only queues the command, the disk isn't touched.
+	 * Every session must only be recorded by one thread at a time
+	 * @param sessionId The id of the session
+	 * @param command The command
+	 * @param session The session, after it has processed the command
+	 */
+	public void record(long sessionId, Command command, Session session) {
+		record(sessionId, null, command, session);
+	}
+
+	/**
+	 * Records a command of a session that clients can resume. The token is logged with the first command of the session
+	 * and kept in the snapshots, so it still resumes the session after a restart
+	 * @param sessionId The id of the session
+	 * @param resumeToken The secret that resumes the session, or null. It is ignored after the first command
+	 * @param command The command
+	 * @param session The session, after it has processed the command
+	 */
+	public void record(long sessionId, String resumeToken, Command command, Session session) {
+		SessionState previous = states.get(sessionId);
+		long sequence = previous != null ? previous.getSequence() + 1 : 1;
+		if (previous != null) {
+			resumeToken = previous.getResumeToken();
+		} else if (resumeToken != null) {
+			log.append(sessionId, 0, resumeToken, null);
+		}
+		if (session.isFinished()) {
+			states.remove(sessionId);
+		} else {
+			states.put(sessionId, captureState(sessionId, sequence, session, resumeToken));
+		}
+		log.append(sessionId, sequence, command.getCommandWord(), command.getSecondWord());
+	}
+
+	/**
+	 * Forgets an unfinished session that will never be continued, so it is left out of the next snapshot
+	 * and isn't recovered anymore once the snapshot has replaced the log
+	 * @param sessionId The id of the session
+	 */
+	public void forget(long sessionId) {
+		states.remove(sessionId);
+	}
+
+	/**
+	 * Writes the state of all sessions to a new snapshot, and deletes the log segments it replaces
+	 * @throws IOException If the snapshot can't be written
+	 */
+	public synchronized void snapshot() throws IOException {
+		// Every command in the older segments was recorded before the roll, so its state is in the map by now.
+		// Commands that land in the new segment after the copy are skipped on recovery by their sequence
+		long firstSegment = log.roll();
+		List<SessionState> snapshotStates = new ArrayList<>(states.values());
+
+		Path temporaryFile = directory.resolve(TEMPORARY_SNAPSHOT_FILE);
+		CRC32 checksum = new CRC32();
+		try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile.toFile())) {
+			DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new CheckedOutputStream(fileOutput, checksum), BUFFER_SIZE));
+			output.writeInt(SNAPSHOT_MAGIC);
+			output.writeShort(SNAPSHOT_VERSION);
+			output.writeShort(0);
+			output.writeLong(maze.getSeed());
+			output.writeLong(firstSegment);
+			output.writeLong(nextSessionId.get());
+			output.writeInt(snapshotStates.size());
+			for (SessionState state : snapshotStates) {
+				output.writeLong(state.getSessionId());
+				output.writeLong(state.getSequence());
+				output.writeLong(state.getCell());
+				output.writeByte(state.getDirectionIndex());
+				output.writeUTF(state.getResumeToken() != null ? state.getResumeToken() : "");
+			}
+			output.flush();
+			output.writeLong(checksum.getValue());
+			output.flush();
+			fileOutput.getFD().sync();
+		}
+		Files.move(temporaryFile, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		for (long segment : listSegments()) {
+			if (segment < firstSegment) {
+				Files.deleteIfExists(CommandLog.getSegmentFile(directory, segment));
+			}
+		}
+	}
+
+	/**
+	 * Stops the periodic snapshots, waits for a snapshot that is being written and writes all queued commands to the disk
+	 * @throws IOException If the log can't be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (snapshotExecutor != null) {
+			snapshotExecutor.shutdown();
+			try {
+				// A running snapshot rolls the log, which has to happen before the log is closed
+				snapshotExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		log.close();
+	}
+
+	private void snapshotInBackground() {
+		try {
+			snapshot();
+		} catch (IOException e) {
+			// The log still has every command, the next snapshot can catch up
+			System.err.println("Couldn't write a snapshot of the sessions: " + e.getMessage());
+		}
+	}
+
+	private static SessionState captureState(long sessionId, long sequence, Session session, String resumeToken) {
+		return new SessionState(sessionId, sequence, session.getCurrentRoom().getCell(),
+				session.getCurrentDirection().getIndex(), resumeToken);
+	}
+
+	/**
+	 * Reads the snapshot into a map
+	 * @return The first segment to replay and the next session id
+	 */
+	private long[] readSnapshot(Map<Long, SessionState> snapshotStates) throws IOException {
+		Path file = directory.resolve(SNAPSHOT_FILE);
+		if (!Files.exists(file)) {
+			return new long[] { 0, 0 };
+		}
+
+		CRC32 checksum = new CRC32();
+		try (InputStream fileInput = Files.newInputStream(file)) {
+			DataInputStream input = new DataInputStream(
+					new CheckedInputStream(new BufferedInputStream(fileInput, BUFFER_SIZE), checksum));
+			if (input.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException(file + " is not a snapshot");
+			}
+			short version = input.readShort();
+			if (version < INT_CELL_SNAPSHOT_VERSION || version > SNAPSHOT_VERSION) {
+				throw new IOException(file + " has version " + version + ", only versions " + INT_CELL_SNAPSHOT_VERSION
+						+ " to " + SNAPSHOT_VERSION + " are supported");
+			}
+			input.readShort();
+			checkMazeSeed(file, input.readLong());
+			long firstSegment = input.readLong();
+			long nextId = input.readLong();
+			int count = input.readInt();
+
+			Grid grid = maze.getGrid();
+			for (int i = 0; i < count; i++) {
+				long sessionId = input.readLong();
+				long sequence = input.readLong();
+				long cell = version == INT_CELL_SNAPSHOT_VERSION ? input.readInt() : input.readLong();
+				int directionIndex = input.readByte();
+				String resumeToken = version > TOKENLESS_SNAPSHOT_VERSION ? input.readUTF() : "";
+				if (cell < 0 || cell >= grid.getCellCount() || directionIndex < 0 || directionIndex >= DIRECTIONS.length) {
+					throw new IOException(file + " is corrupted, session " + sessionId + " is outside of the maze");
+				}
+				snapshotStates.put(sessionId, new SessionState(sessionId, sequence, cell, directionIndex,
+						resumeToken.isEmpty() ? null : resumeToken));
+			}
+
+			long expectedChecksum = checksum.getValue();
+			if (input.readLong() != expectedChecksum) {
+				throw new IOException(file + " is corrupted, the checksum doesn't match");
+			}
+			return new long[] { firstSegment, nextId };
+		} catch (EOFException e) {
+			throw new IOException(file + " is truncated", e);
+		}
+	}
+
+	/**
+	 * Applies the commands of a segment to the sessions. A session only continues with the command that directly
+	 * follows its last one, so commands that are already part of the snapshot are skipped.
+	 * Records with the sequence 0 only carry the resume token of their session.
+	 * The segment ends at the first record that is incomplete or damaged, which is where a crash interrupted the writer
+	 * @return The smallest session id that is higher than every id in the segment
+	 */
+	private long replaySegment(long segment, Map<Long, Session> sessions, Map<Long, Long> sequences,
+			Map<Long, String> resumeTokens) throws IOException {
+		Path file = CommandLog.getSegmentFile(directory, segment);
+		long nextId = 0;
+		StringBuilder ignoredOutput = new StringBuilder();
+		byte[] body = new byte[CommandLog.MAX_BODY_SIZE];
+		CRC32 checksum = new CRC32();
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			if (input.readInt() != CommandLog.MAGIC) {
+				throw new IOException(file + " is not a command log");
+			}
+			short version = input.readShort();
+			if (version != CommandLog.VERSION) {
+				throw new IOException(file + " has version " + version + ", only version " + CommandLog.VERSION + " is supported");
+			}
+			input.readShort();
+			checkMazeSeed(file, input.readLong());
+
+			while (true) {
+				int length = input.readInt();
+				if (length < 2 * Long.BYTES + 2 * Short.BYTES || length > body.length) {
+					return nextId;
+				}
+				input.readFully(body, 0, length);
+				checksum.reset();
+				checksum.update(body, 0, length);
+				if (input.readInt() != (int)checksum.getValue()) {
+					return nextId;
+				}
+
+				DataInputStream record = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+				long sessionId = record.readLong();
+				long sequence = record.readLong();
+				String commandWord = readWord(record);
+				String secondWord = readWord(record);
+				nextId = Math.max(nextId, sessionId + 1);
+				if (sequence == 0) {
+					resumeTokens.put(sessionId, commandWord);
+					continue;
+				}
+
+				Long lastSequence = sequences.get(sessionId);
+				if (lastSequence == null ? sequence != 1 : sequence != lastSequence + 1) {
+					continue;
+				}
+				Session session = sessions.get(sessionId);
+				if (session == null) {
+					session = new Session(maze);
+					sessions.put(sessionId, session);
+				}
+				ignoredOutput.setLength(0);
+				session.processCommand(new Command(commandWord, secondWord), ignoredOutput);
+				sequences.put(sessionId, sequence);
+			}
+		} catch (EOFException e) {
+			return nextId;
+		}
+	}
+
+	private static String readWord(DataInputStream record) throws IOException {
+		short length = record.readShort();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		record.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void checkMazeSeed(Path file, long mazeSeed) throws IOException {
+		if (mazeSeed != maze.getSeed()) {
+			throw new IOException(file + " belongs to the maze with the seed " + mazeSeed + ", not " + maze.getSeed());
+		}
+	}
+
+	private List<Long> listSegments() throws IOException {
+		List<Long> segments = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				long segment = CommandLog.getSegment(file);
+				if (segment >= 0) {
+					segments.add(segment);
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+}
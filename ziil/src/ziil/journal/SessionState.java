@@ -0,0 +1,48 @@
+package ziil.journal;
+
+/**
+ * The position of a session after a numbered command, as it is written to snapshots
+ * @author Manuel
+ *
+ */
+final class SessionState {
+	private final long sessionId;
+	private final long sequence;
+	private final long cell;
+	private final int directionIndex;
+	private final String resumeToken;
+
+	SessionState(long sessionId, long sequence, long cell, int directionIndex, String resumeToken) {
+		this.sessionId = sessionId;
+		this.sequence = sequence;
+		this.cell = cell;
+		this.directionIndex = directionIndex;
+		this.resumeToken = resumeToken;
+	}
+
+	long getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Gets the number of commands the session had processed in this state
+	 */
+	long getSequence() {
+		return sequence;
+	}
+
+	long getCell() {
+		return cell;
+	}
+
+	int getDirectionIndex() {
+		return directionIndex;
+	}
+
+	/**
+	 * Gets the secret a client needs to resume the session, or null if it has none
+	 */
+	String getResumeToken() {
+		return resumeToken;
+	}
+}
@@ -0,0 +1,42 @@
+package ziil.journal;
+
+/**
+ * Decides how often the command log is forced to the disk.
+ * Commands are always written asynchronously, so the policy only trades durability for disk load,
+ * never for command latency
+ * @author Manuel
+ *
+ */
+public enum SyncPolicy {
+	/**
+	 * Forces every batch of commands to the disk. A crash loses at most the commands that were still queued
+	 */
+	EVERY_BATCH,
+	/**
+	 * Forces the log at most once per second. A crash loses at most about a second of commands
+	 */
+	EVERY_SECOND,
+	/**
+	 * Never forces the log and leaves it to the operating system. Only survives crashes of the process
+	 */
+	NEVER;
+
+	@Override
+	public String toString() {
+		return name().toLowerCase().replace('_', '-');
+	}
+
+	/**
+	 * Gets the policy with a name
+	 * @param name The name, as returned by {@link #toString()}
+	 * @return The policy
+	 */
+	public static SyncPolicy fromName(String name) {
+		for (SyncPolicy policy : values()) {
+			if (policy.toString().equals(name)) {
+				return policy;
+			}
+		}
+		throw new IllegalArgumentException("There is no sync policy called " + name);
+	}
+}
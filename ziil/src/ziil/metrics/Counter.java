@@ -0,0 +1,50 @@
+package ziil.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named count that any number of threads can increase at the same time.
+ * The count is striped, so threads rarely contend, and summed up only when it is read
+ * @author Manuel
+ *
+ */
+public class Counter {
+	private final String name;
+	private final LongAdder count;
+
+	Counter(String name) {
+		this.name = name;
+		this.count = new LongAdder();
+	}
+
+	/**
+	 * Gets the name of this counter, e.g. "commands"
+	 * @return The name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Increases the count by one
+	 */
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * Increases the count
+	 * @param amount The amount to add
+	 */
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	/**
+	 * Gets the current count
+	 * @return The count
+	 */
+	public long get() {
+		return count.sum();
+	}
+}
@@ -0,0 +1,114 @@
+package ziil.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import ziil.util.LongHistogram;
+
+/**
+ * The counters and timers of the hot paths, such as the commands, the maze generation and the path finding.
+ * Metrics are off unless the system property "ziil.metrics" is "true". {@link #ENABLED} is a constant,
+ * so the JIT compiler removes the instrumentation completely when it is off, and the hot paths only pay for it
+ * when it is on. Instrumented code looks like this:
+ * <pre>
+ * long startTime = Metrics.ENABLED ? System.nanoTime() : 0;
+ * ...
+ * if (Metrics.ENABLED) {
+ *     TIMER.recordSince(startTime);
+ * }
+ * </pre>
+ * When metrics are on, they are published as the MBean "ziil:type=Metrics" and written to the standard error stream
+ * every "ziil.metrics.interval" seconds (60 by default, 0 to never write them)
+ * @author Manuel
+ *
+ */
+public final class Metrics {
+	/**
+	 * Whether metrics are recorded at all
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("ziil.metrics");
+	private static final long DEFAULT_DUMP_INTERVAL = 60;
+	private static final double NANOS_PER_MICRO = 1000.0;
+	private static final Map<String, Counter> COUNTERS = new LinkedHashMap<>();
+	private static final Map<String, Timer> TIMERS = new LinkedHashMap<>();
+
+	static {
+		if (ENABLED) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(),
+						new ObjectName("ziil:type=Metrics"));
+			} catch (JMException e) {
+				System.err.println("Couldn't publish the metrics: " + e.getMessage());
+			}
+			long interval = Long.getLong("ziil.metrics.interval", DEFAULT_DUMP_INTERVAL);
+			if (interval > 0) {
+				MetricsReporter.start(interval, System.err);
+			}
+		}
+	}
+
+	private Metrics() {
+	}
+
+	/**
+	 * Gets the counter with a name, and creates it if there is none yet.
+	 * Counters are meant to be looked up once and kept in a constant
+	 * @param name The name of the counter
+	 * @return The counter
+	 */
+	public static synchronized Counter counter(String name) {
+		return COUNTERS.computeIfAbsent(name, Counter::new);
+	}
+
+	/**
+	 * Gets the timer with a name, and creates it if there is none yet.
+	 * Timers are meant to be looked up once and kept in a constant
+	 * @param name The name of the timer
+	 * @return The timer
+	 */
+	public static synchronized Timer timer(String name) {
+		return TIMERS.computeIfAbsent(name, Timer::new);
+	}
+
+	/**
+	 * Gets all counters, in the order they were created
+	 * @return The counters
+	 */
+	public static synchronized List<Counter> getCounters() {
+		return new ArrayList<>(COUNTERS.values());
+	}
+
+	/**
+	 * Gets all timers, in the order they were created
+	 * @return The timers
+	 */
+	public static synchronized List<Timer> getTimers() {
+		return new ArrayList<>(TIMERS.values());
+	}
+
+	/**
+	 * Writes the current value of every metric, one per line. Durations are in microseconds
+	 * @return The text
+	 */
+	public static String dump() {
+		StringBuilder text = new StringBuilder();
+		for (Counter counter : getCounters()) {
+			text.append(counter.getName()).append(": ").append(counter.get()).append('\n');
+		}
+		for (Timer timer : getTimers()) {
+			LongHistogram durations = timer.snapshot();
+			text.append(timer.getName()).append(": count ").append(durations.getCount())
+					.append(String.format(", mean %.1f us", durations.getMean() / NANOS_PER_MICRO))
+					.append(String.format(", p50 %.1f us", durations.getValueAtPercentile(50) / NANOS_PER_MICRO))
+					.append(String.format(", p99 %.1f us", durations.getValueAtPercentile(99) / NANOS_PER_MICRO))
+					.append(String.format(", max %.1f us", durations.getMax() / NANOS_PER_MICRO)).append('\n');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,111 @@
+package ziil.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+import ziil.util.LongHistogram;
+
+/**
+ * Publishes the metrics over JMX. Every counter is an attribute with its name, every timer has the attributes
+ * "name.count", "name.mean", "name.p50", "name.p99", "name.p999" and "name.max", with durations in nanoseconds.
+ * The attributes are read-only and are looked up when they are read, so metrics created later show up as well
+ * @author Manuel
+ *
+ */
+final class MetricsBean implements DynamicMBean {
+	private static final String[] TIMER_STATISTICS = { "count", "mean", "p50", "p99", "p999", "max" };
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		for (Counter counter : Metrics.getCounters()) {
+			if (counter.getName().equals(attribute)) {
+				return counter.get();
+			}
+		}
+
+		int separator = attribute.lastIndexOf('.');
+		if (separator > 0) {
+			String name = attribute.substring(0, separator);
+			for (Timer timer : Metrics.getTimers()) {
+				if (timer.getName().equals(name)) {
+					return getStatistic(timer.snapshot(), attribute.substring(separator + 1), attribute);
+				}
+			}
+		}
+		throw new AttributeNotFoundException("There is no metric called " + attribute);
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList values = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				values.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (AttributeNotFoundException e) {
+				// Attributes that can't be read are left out, as the interface demands
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Metrics are read-only");
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> attributes = new ArrayList<>();
+		for (Counter counter : Metrics.getCounters()) {
+			attributes.add(new MBeanAttributeInfo(counter.getName(), "long", "Counter", true, false, false));
+		}
+		for (Timer timer : Metrics.getTimers()) {
+			for (String statistic : TIMER_STATISTICS) {
+				String type = "mean".equals(statistic) ? "double" : "long";
+				attributes.add(new MBeanAttributeInfo(timer.getName() + "." + statistic, type,
+						"Timer in nanoseconds", true, false, false));
+			}
+		}
+		return new MBeanInfo(getClass().getName(), "The metrics of ziil",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[0], null);
+	}
+
+	private static Object getStatistic(LongHistogram durations, String statistic, String attribute)
+			throws AttributeNotFoundException {
+		switch (statistic) {
+			case "count":
+				return durations.getCount();
+			case "mean":
+				return durations.getMean();
+			case "p50":
+				return durations.getValueAtPercentile(50);
+			case "p99":
+				return durations.getValueAtPercentile(99);
+			case "p999":
+				return durations.getValueAtPercentile(99.9);
+			case "max":
+				return durations.getMax();
+			default:
+				throw new AttributeNotFoundException("There is no metric called " + attribute);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package ziil.metrics;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes all metrics to a stream at a fixed interval, together with the rate of every counter since the last time
+ * @author Manuel
+ *
+ */
+final class MetricsReporter {
+	private final PrintStream output;
+	private final Map<String, Long> previousCounts;
+	private long previousTime;
+
+	private MetricsReporter(PrintStream output) {
+		this.output = output;
+		this.previousCounts = new HashMap<>();
+		this.previousTime = System.nanoTime();
+	}
+
+	/**
+	 * Starts writing the metrics on a daemon thread
+	 * @param intervalSeconds The number of seconds between two reports
+	 * @param output The stream to write to
+	 */
+	static void start(long intervalSeconds, PrintStream output) {
+		MetricsReporter reporter = new MetricsReporter(output);
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ziil-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(reporter::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	private void report() {
+		long time = System.nanoTime();
+		double seconds = (time - previousTime) / 1e9;
+		previousTime = time;
+
+		StringBuilder rates = new StringBuilder();
+		for (Counter counter : Metrics.getCounters()) {
+			long count = counter.get();
+			Long previousCount = previousCounts.put(counter.getName(), count);
+			long difference = count - (previousCount != null ? previousCount : 0);
+			rates.append(counter.getName()).append(String.format(": %.1f/s", difference / seconds)).append('\n');
+		}
+		output.print("--- ziil metrics ---\n" + Metrics.dump() + rates);
+		output.flush();
+	}
+}
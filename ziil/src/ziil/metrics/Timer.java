@@ -0,0 +1,51 @@
+package ziil.metrics;
+
+import ziil.util.ConcurrentLongHistogram;
+import ziil.util.LongHistogram;
+
+/**
+ * A named distribution of durations in nanoseconds, that any number of threads can record to at the same time
+ * @author Manuel
+ *
+ */
+public class Timer {
+	private final String name;
+	private final ConcurrentLongHistogram durations;
+
+	Timer(String name) {
+		this.name = name;
+		this.durations = new ConcurrentLongHistogram();
+	}
+
+	/**
+	 * Gets the name of this timer, e.g. "maze.generation"
+	 * @return The name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records how long something took
+	 * @param nanos The duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		durations.record(Math.max(0, nanos));
+	}
+
+	/**
+	 * Records the time that has passed since a start time
+	 * @param startNanos The start time, as returned by {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Copies the durations that have been recorded so far
+	 * @return The durations in nanoseconds
+	 */
+	public LongHistogram snapshot() {
+		return durations.snapshot();
+	}
+}
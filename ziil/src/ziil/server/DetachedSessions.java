@@ -0,0 +1,129 @@
+package ziil.server;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import ziil.core.Session;
+import ziil.journal.Journal;
+
+/**
+ * The unfinished sessions whose client has left, by their resume token. Shared by all connections of a server.
+ * The tokens are random and have nothing to do with the ids in the journal,
+ * so a client can only resume a session it was told the token of.
+ * A session is forgotten, in the journal as well, once it has been detached for longer than the timeout,
+ * or when the limit is reached and it has been detached for the longest time, so abandoned sessions don't pile up.
+ * Expired sessions are dropped whenever a session is detached or resumed
+ * @author Manuel
+ *
+ */
+final class DetachedSessions {
+	private static final SecureRandom TOKEN_RANDOM = new SecureRandom();
+	private final Journal journal;
+	private final long timeoutNanos;
+	private final int maxSessions;
+	// In the order in which the sessions were detached, so the oldest one is always the first
+	private final LinkedHashMap<String, Detached> sessions;
+
+	/**
+	 * Creates the detached sessions of a server. The sessions that were recovered from the journal are detached now
+	 * @param journal The journal of the server, or null
+	 * @param timeout The time in milliseconds after which a detached session is forgotten
+	 * @param maxSessions The maximum number of detached sessions
+	 */
+	DetachedSessions(Journal journal, long timeout, int maxSessions) {
+		this.journal = journal;
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.maxSessions = maxSessions;
+		this.sessions = new LinkedHashMap<>();
+		if (journal != null) {
+			for (Map.Entry<Long, Session> entry : journal.getRecoveredSessions().entrySet()) {
+				String resumeToken = journal.getResumeToken(entry.getKey());
+				if (resumeToken != null) {
+					detach(entry.getKey(), resumeToken, entry.getValue());
+				} else {
+					// Recorded before there were tokens, so nobody can ever resume it
+					journal.forget(entry.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a new resume token
+	 * @return 128 random bits in hex
+	 */
+	static String newResumeToken() {
+		return String.format("%016x%016x", TOKEN_RANDOM.nextLong(), TOKEN_RANDOM.nextLong());
+	}
+
+	/**
+	 * Keeps a session until a client resumes it
+	 * @param sessionId The id of the session in the journal
+	 * @param resumeToken The token that resumes the session
+	 * @param session The session
+	 */
+	synchronized void detach(long sessionId, String resumeToken, Session session) {
+		long now = System.nanoTime();
+		evictExpired(now);
+		if (sessions.size() >= maxSessions) {
+			Iterator<Detached> oldest = sessions.values().iterator();
+			forget(oldest.next());
+			oldest.remove();
+		}
+		sessions.put(resumeToken, new Detached(sessionId, session, now));
+	}
+
+	/**
+	 * Takes a session over, so no other client can resume it at the same time
+	 * @param resumeToken The token of the session
+	 * @return The id of the session in the journal and the session, or null if there is no such session
+	 */
+	synchronized Detached resume(String resumeToken) {
+		evictExpired(System.nanoTime());
+		return sessions.remove(resumeToken);
+	}
+
+	private void evictExpired(long now) {
+		Iterator<Detached> iterator = sessions.values().iterator();
+		while (iterator.hasNext()) {
+			Detached detached = iterator.next();
+			if (now - detached.detachTime < timeoutNanos) {
+				return;
+			}
+			forget(detached);
+			iterator.remove();
+		}
+	}
+
+	private void forget(Detached detached) {
+		if (journal != null) {
+			journal.forget(detached.sessionId);
+		}
+	}
+
+	/**
+	 * A session that waits for its client
+	 */
+	static final class Detached {
+		private final long sessionId;
+		private final Session session;
+		private final long detachTime;
+
+		private Detached(long sessionId, Session session, long detachTime) {
+			this.sessionId = sessionId;
+			this.session = session;
+			this.detachTime = detachTime;
+		}
+
+		long getSessionId() {
+			return sessionId;
+		}
+
+		Session getSession() {
+			return session;
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package ziil.server;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ziil.core.Grid;
+import ziil.core.Maze;
+import ziil.core.MazeCache;
+import ziil.core.Session;
+import ziil.generator.GeneratorType;
+import ziil.journal.Journal;
+import ziil.journal.SyncPolicy;
+
+/**
+ * Serves one maze to many players over TCP. The protocol is the same as on the console:
+ * the client sends one command per line, the server answers and ends every answer with the prompt "> ".
+ * Every connection gets its own {@link Session} and its own thread. All sessions share the same maze.
+ * @author Manuel
+ *
+ */
+public class GameServer {
+	/**
+	 * The prompt that ends every answer of the server
+	 */
+	public static final String PROMPT = "> ";
+	static final int DEFAULT_PORT = 4711;
+	static final int DEFAULT_MAX_SESSIONS = 20000;
+	private static final int DEFAULT_MAZE_SIZE = 100;
+	// Sessions only need a few stack frames, so small stacks keep thousands of threads cheap
+	private static final long THREAD_STACK_SIZE = 128 * 1024;
+	static final int MAX_LINE_LENGTH = 256;
+	static final String SERVER_FULL_MESSAGE = "The server is full, please try again later.\n";
+	private static final int INPUT_BUFFER_SIZE = 512;
+	private static final long SNAPSHOT_INTERVAL = 60 * 1000;
+	private static final long ACCEPT_BACKOFF = 100;
+	// Abandoned sessions are forgotten after a while, so they don't fill the memory and the snapshots
+	static final long DETACHED_SESSION_TIMEOUT = 30 * 60 * 1000;
+	static final int MAX_DETACHED_SESSIONS = 100000;
+	private final Maze maze;
+	private final int port;
+	private final Semaphore sessionPermits;
+	private final AtomicInteger activeSessions;
+	private final Journal journal;
+	private final DetachedSessions detachedSessions;
+	private volatile ServerSocket serverSocket;
+
+	/**
+	 * Starts a server. The optional arguments are the port, the size of the maze,
+	 * the name of the generator (see {@link GeneratorType}), the seed, a maze file, a journal directory and a sync policy (see {@link SyncPolicy}).
+	 * If the maze file exists, the maze is loaded from it instead of being generated, otherwise the generated maze
+	 * is saved to it, so a restarted server keeps its maze. With a journal, the sessions survive a restart as well
+	 * @param args The command line arguments
+	 * @throws IOException If the server socket can't be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		Maze maze = createMaze(args);
+		GameServer server = new GameServer(maze, port, DEFAULT_MAX_SESSIONS, openJournal(args, maze));
+		Grid grid = maze.getGrid();
+		System.out.println("Serving a " + grid.getWidth() + "x" + grid.getHeight() + " maze on port " + port);
+		server.run();
+	}
+
+	/**
+	 * Creates or loads the maze from the arguments of {@link #main(String[])}
+	 */
+	static Maze createMaze(String[] args) throws IOException {
+		int mazeSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAZE_SIZE;
+		GeneratorType generatorType = args.length > 2 ? GeneratorType.fromName(args[2]) : GeneratorType.BACKTRACKER;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : ThreadLocalRandom.current().nextLong();
+		Path mazeFile = args.length > 4 ? Paths.get(args[4]) : null;
+
+		if (mazeFile != null && Files.exists(mazeFile)) {
+			return Maze.load(mazeFile);
+		}
+		Maze maze = MazeCache.shared().get(mazeSize, generatorType, seed);
+		if (mazeFile != null) {
+			maze.save(mazeFile);
+		}
+		return maze;
+	}
+
+	/**
+	 * Opens the journal from the arguments of {@link #main(String[])}, and closes it when the process ends
+	 * @return The journal, or null if there is none
+	 */
+	static Journal openJournal(String[] args, Maze maze) throws IOException {
+		if (args.length <= 5) {
+			return null;
+		}
+		SyncPolicy syncPolicy = args.length > 6 ? SyncPolicy.fromName(args[6]) : SyncPolicy.EVERY_SECOND;
+		Journal journal = new Journal(Paths.get(args[5]), maze, syncPolicy, SNAPSHOT_INTERVAL);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				System.err.println("Couldn't close the journal: " + e.getMessage());
+			}
+		}));
+		System.out.println("Recovered " + journal.getRecoveredSessions().size() + " sessions");
+		return journal;
+	}
+
+	/**
+	 * Creates a server
+	 * @param maze The maze all sessions play in
+	 * @param port The port to listen on
+	 * @param maxSessions The maximum number of concurrent sessions. Further connections are rejected
+	 */
+	public GameServer(Maze maze, int port, int maxSessions) {
+		this(maze, port, maxSessions, null);
+	}
+
+	/**
+	 * Creates a server that records its sessions in a journal. The sessions that were recovered from the journal
+	 * and sessions whose client disconnected can be continued by sending "resume" and the token the session was given
+	 * @param maze The maze all sessions play in
+	 * @param port The port to listen on
+	 * @param maxSessions The maximum number of concurrent sessions. Further connections are rejected
+	 * @param journal The journal to record the sessions in, or null to keep them only in memory
+	 */
+	public GameServer(Maze maze, int port, int maxSessions, Journal journal) {
+		this.maze = maze;
+		this.port = port;
+		this.sessionPermits = new Semaphore(maxSessions);
+		this.activeSessions = new AtomicInteger();
+		this.journal = journal;
+		this.detachedSessions = new DetachedSessions(journal, DETACHED_SESSION_TIMEOUT, MAX_DETACHED_SESSIONS);
+	}
+
+	/**
+	 * Accepts connections until the server is stopped. If a connection can't be accepted, for example because
+	 * the process has run out of file descriptors, the server waits a moment and tries again
+	 * @throws IOException If the server socket can't be opened
+	 */
+	public void run() throws IOException {
+		try (ServerSocket socket = new ServerSocket(port, 1024)) {
+			serverSocket = socket;
+			while (!socket.isClosed()) {
+				Socket clientSocket;
+				try {
+					clientSocket = socket.accept();
+				} catch (IOException e) {
+					if (socket.isClosed()) {
+						break;
+					}
+					backOff(e);
+					continue;
+				}
+
+				if (!sessionPermits.tryAcquire()) {
+					reject(clientSocket);
+					continue;
+				}
+				Thread thread = new Thread(null, () -> serve(clientSocket), "ziil-session", THREAD_STACK_SIZE);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections. Running sessions continue until their clients leave
+	 */
+	public void stop() {
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// The server is stopping anyway
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of sessions that are currently connected
+	 * @return The number of sessions
+	 */
+	public int getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	private void serve(Socket clientSocket) {
+		activeSessions.incrementAndGet();
+		PlayerConnection connection = new PlayerConnection(maze, journal, detachedSessions);
+		try (Socket socket = clientSocket) {
+			socket.setTcpNoDelay(true);
+			InputStream input = new BufferedInputStream(socket.getInputStream(), INPUT_BUFFER_SIZE);
+			OutputStream output = socket.getOutputStream();
+			byte[] lineBuffer = new byte[MAX_LINE_LENGTH];
+			StringBuilder answer = new StringBuilder();
+
+			connection.start(answer);
+			write(output, answer);
+
+			while (true) {
+				int lineLength = readLine(input, lineBuffer);
+				if (lineLength < 0) {
+					return;
+				}
+
+				answer.setLength(0);
+				boolean finished = connection.handleLine(lineBuffer, lineLength, answer);
+				write(output, answer);
+				if (finished) {
+					return;
+				}
+			}
+		} catch (IOException e) {
+			// The client went away, there's nobody left to tell
+		} finally {
+			connection.close();
+			activeSessions.decrementAndGet();
+			sessionPermits.release();
+		}
+	}
+
+	/**
+	 * Waits a little after accepting a connection failed. The cause usually lasts until other connections are closed,
+	 * so trying again right away would only spin
+	 */
+	static void backOff(IOException e) {
+		System.err.println("Couldn't accept a connection: " + e);
+		try {
+			Thread.sleep(ACCEPT_BACKOFF);
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void reject(Socket clientSocket) {
+		try (Socket socket = clientSocket) {
+			socket.getOutputStream().write(SERVER_FULL_MESSAGE.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// The client went away, there's nobody left to tell
+		}
+	}
+
+	private static void write(OutputStream output, CharSequence answer) throws IOException {
+		output.write(answer.toString().getBytes(StandardCharsets.UTF_8));
+		output.flush();
+	}
+
+	/**
+	 * Reads a line into a fixed buffer. Characters beyond the buffer are dropped,
+	 * so a client can't make the server allocate more memory by sending long lines
+	 * @return The length of the line without the line break, or -1 at the end of the stream
+	 */
+	private static int readLine(InputStream input, byte[] lineBuffer) throws IOException {
+		int length = 0;
+		int nextByte = input.read();
+		if (nextByte < 0) {
+			return -1;
+		}
+
+		while (nextByte >= 0 && nextByte != '\n') {
+			if (length < lineBuffer.length) {
+				lineBuffer[length++] = (byte)nextByte;
+			}
+			nextByte = input.read();
+		}
+
+		if (length > 0 && lineBuffer[length - 1] == '\r') {
+			length--;
+		}
+		return length;
+	}
+}
@@ -0,0 +1,162 @@
+package ziil.server;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects many simulated players to a {@link GameServer} at the same time and measures the answer times.
+ * All players connect first and only start sending commands when everyone is connected,
+ * so the server has to hold all sessions at once.
+ * The arguments are the host, the port, the number of players and the number of commands per player
+ * @author Manuel
+ *
+ */
+public class LoadGenerator {
+	private static final String[] COMMANDS = { "go straight", "go left", "go right", "go back", "evaluate", "help" };
+	private static final long THREAD_STACK_SIZE = 128 * 1024;
+	private static final int CONNECT_ATTEMPTS = 10;
+
+	public static void main(String[] args) throws InterruptedException {
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 4711;
+		int players = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int commandsPerPlayer = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+		CountDownLatch connected = new CountDownLatch(players);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger failedPlayers = new AtomicInteger();
+		long[][] latencies = new long[players][];
+		List<Thread> threads = new ArrayList<>(players);
+
+		for (int i = 0; i < players; i++) {
+			int player = i;
+			Thread thread = new Thread(null, () -> {
+				try {
+					latencies[player] = play(host, port, commandsPerPlayer, new Random(player), connected, start);
+				} catch (IOException | InterruptedException e) {
+					failedPlayers.incrementAndGet();
+					connected.countDown();
+				}
+			}, "ziil-player", THREAD_STACK_SIZE);
+			threads.add(thread);
+			thread.start();
+		}
+
+		connected.await();
+		System.out.println((players - failedPlayers.get()) + " players connected");
+		long startTime = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long duration = System.nanoTime() - startTime;
+
+		printResults(latencies, duration, failedPlayers.get());
+	}
+
+	private static long[] play(String host, int port, int commandCount, Random random,
+			CountDownLatch connected, CountDownLatch start) throws IOException, InterruptedException {
+		long[] latencies = new long[commandCount];
+		Socket socket = connect(host, port);
+		try {
+			InputStream input = new BufferedInputStream(socket.getInputStream());
+			OutputStream output = socket.getOutputStream();
+			readAnswer(input);
+			connected.countDown();
+			start.await();
+
+			for (int i = 0; i < commandCount; i++) {
+				String command = COMMANDS[random.nextInt(COMMANDS.length)] + "\n";
+				long sendTime = System.nanoTime();
+				output.write(command.getBytes(StandardCharsets.UTF_8));
+				output.flush();
+				boolean hasMore = readAnswer(input);
+				latencies[i] = System.nanoTime() - sendTime;
+
+				if (!hasMore) {
+					// The player found the exit, so start a new game
+					socket.close();
+					socket = connect(host, port);
+					input = new BufferedInputStream(socket.getInputStream());
+					output = socket.getOutputStream();
+					readAnswer(input);
+				}
+			}
+		} finally {
+			socket.close();
+		}
+		return latencies;
+	}
+
+	private static Socket connect(String host, int port) throws IOException, InterruptedException {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				Socket socket = new Socket(host, port);
+				socket.setTcpNoDelay(true);
+				return socket;
+			} catch (IOException e) {
+				if (attempt == CONNECT_ATTEMPTS) {
+					throw e;
+				}
+				// The accept queue of the server may be full, give it a moment
+				Thread.sleep(10L * attempt);
+			}
+		}
+	}
+
+	/**
+	 * Reads until the prompt or the end of the stream
+	 * @return True if the answer ended with a prompt, false if the server closed the connection
+	 */
+	private static boolean readAnswer(InputStream input) throws IOException {
+		int previous = -1;
+		int current;
+		while ((current = input.read()) >= 0) {
+			if (previous == GameServer.PROMPT.charAt(0) && current == GameServer.PROMPT.charAt(1)) {
+				return true;
+			}
+			previous = current;
+		}
+		return false;
+	}
+
+	private static void printResults(long[][] latencies, long duration, int failedPlayers) {
+		int count = 0;
+		for (long[] playerLatencies : latencies) {
+			count += playerLatencies == null ? 0 : playerLatencies.length;
+		}
+
+		long[] allLatencies = new long[count];
+		int index = 0;
+		for (long[] playerLatencies : latencies) {
+			if (playerLatencies != null) {
+				System.arraycopy(playerLatencies, 0, allLatencies, index, playerLatencies.length);
+				index += playerLatencies.length;
+			}
+		}
+		Arrays.sort(allLatencies);
+
+		System.out.println("Failed players: " + failedPlayers);
+		System.out.println(String.format("Commands: %d in %.1f s (%.0f commands/s)", count, duration / 1e9, count / (duration / 1e9)));
+		if (count > 0) {
+			System.out.println(String.format("Latency p50: %.3f ms, p99: %.3f ms, p99.9: %.3f ms, max: %.3f ms",
+					getPercentile(allLatencies, 0.5) / 1e6, getPercentile(allLatencies, 0.99) / 1e6,
+					getPercentile(allLatencies, 0.999) / 1e6, allLatencies[count - 1] / 1e6));
+		}
+	}
+
+	private static long getPercentile(long[] sortedValues, double percentile) {
+		int index = (int)Math.ceil(percentile * sortedValues.length) - 1;
+		return sortedValues[Math.max(0, index)];
+	}
+}
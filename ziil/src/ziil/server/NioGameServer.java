@@ -0,0 +1,346 @@
+package ziil.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ziil.core.Grid;
+import ziil.core.Maze;
+import ziil.io.BufferPool;
+import ziil.io.Utf8;
+import ziil.journal.Journal;
+
+/**
+ * Serves one maze to many players over TCP with a few selector threads instead of a thread per connection.
+ * The protocol is the same as the one of {@link GameServer}.
+ * Every event loop reads into one shared direct buffer, handles all complete lines and sends the answers
+ * to all of them with a single write. A connection only holds a pooled direct buffer while its answer
+ * couldn't be sent completely; until then it isn't read anymore, so slow clients can't make the server buffer without limit
+ * @author Manuel
+ *
+ */
+public class NioGameServer {
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+	private static final int WRITE_BUFFER_SIZE = 4 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 256;
+	private final Maze maze;
+	private final int port;
+	private final Journal journal;
+	private final DetachedSessions detachedSessions;
+	private final Semaphore sessionPermits;
+	private final AtomicInteger activeSessions;
+	private final EventLoop[] eventLoops;
+	private volatile ServerSocketChannel serverChannel;
+
+	/**
+	 * Starts a server. The arguments are the same as the ones of {@link GameServer#main(String[])}
+	 * @param args The command line arguments
+	 * @throws IOException If the server socket can't be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+		Maze maze = GameServer.createMaze(args);
+		NioGameServer server = new NioGameServer(maze, port, GameServer.DEFAULT_MAX_SESSIONS,
+				GameServer.openJournal(args, maze), Runtime.getRuntime().availableProcessors());
+		Grid grid = maze.getGrid();
+		System.out.println("Serving a " + grid.getWidth() + "x" + grid.getHeight() + " maze on port " + port + " with non-blocking I/O");
+		server.run();
+	}
+
+	/**
+	 * Creates a server
+	 * @param maze The maze all sessions play in
+	 * @param port The port to listen on
+	 * @param maxSessions The maximum number of concurrent sessions. Further connections are rejected
+	 * @param journal The journal to record the sessions in, or null to keep them only in memory
+	 * @param eventLoopCount The number of selector threads
+	 * @throws IOException If a selector can't be opened
+	 */
+	public NioGameServer(Maze maze, int port, int maxSessions, Journal journal, int eventLoopCount) throws IOException {
+		this.maze = maze;
+		this.port = port;
+		this.journal = journal;
+		this.detachedSessions = new DetachedSessions(journal, GameServer.DETACHED_SESSION_TIMEOUT,
+				GameServer.MAX_DETACHED_SESSIONS);
+		this.sessionPermits = new Semaphore(maxSessions);
+		this.activeSessions = new AtomicInteger();
+		this.eventLoops = new EventLoop[eventLoopCount];
+		for (int i = 0; i < eventLoopCount; i++) {
+			eventLoops[i] = new EventLoop();
+		}
+	}
+
+	/**
+	 * Starts the event loops and accepts connections until the server is stopped. Like {@link GameServer#run()},
+	 * it keeps accepting after a connection couldn't be accepted
+	 * @throws IOException If the server socket can't be opened
+	 */
+	public void run() throws IOException {
+		for (EventLoop eventLoop : eventLoops) {
+			Thread thread = new Thread(eventLoop, "ziil-event-loop");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+			channel.bind(new InetSocketAddress(port), 1024);
+			serverChannel = channel;
+			int nextEventLoop = 0;
+			while (channel.isOpen()) {
+				SocketChannel clientChannel;
+				try {
+					clientChannel = channel.accept();
+				} catch (ClosedChannelException e) {
+					break;
+				} catch (IOException e) {
+					if (!channel.isOpen()) {
+						break;
+					}
+					GameServer.backOff(e);
+					continue;
+				}
+
+				if (!sessionPermits.tryAcquire()) {
+					reject(clientChannel);
+					continue;
+				}
+				activeSessions.incrementAndGet();
+				eventLoops[nextEventLoop].add(clientChannel);
+				nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections. Running sessions continue until their clients leave
+	 */
+	public void stop() {
+		ServerSocketChannel channel = serverChannel;
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// The server is stopping anyway
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of sessions that are currently connected
+	 * @return The number of sessions
+	 */
+	public int getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	private static void reject(SocketChannel clientChannel) {
+		try (SocketChannel channel = clientChannel) {
+			channel.write(ByteBuffer.wrap(GameServer.SERVER_FULL_MESSAGE.getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			// The client went away, there's nobody left to tell
+		}
+	}
+
+	/**
+	 * The state of one client in an event loop
+	 */
+	private static final class Client {
+		private final SocketChannel channel;
+		private final PlayerConnection connection;
+		private final byte[] line;
+		private int lineLength;
+		// The answer that hasn't been encoded yet, starting at answerPosition
+		private final StringBuilder answer;
+		private int answerPosition;
+		// Encoded bytes that haven't been sent yet, or null if everything has been sent
+		private ByteBuffer output;
+		private boolean closing;
+		private boolean closed;
+
+		private Client(SocketChannel channel, PlayerConnection connection) {
+			this.channel = channel;
+			this.connection = connection;
+			this.line = new byte[GameServer.MAX_LINE_LENGTH];
+			this.answer = new StringBuilder();
+		}
+	}
+
+	/**
+	 * One selector thread that serves its share of the connections
+	 */
+	private final class EventLoop implements Runnable {
+		private final Selector selector;
+		private final Queue<SocketChannel> newChannels;
+		private final ByteBuffer readBuffer;
+		private final BufferPool writeBuffers;
+
+		private EventLoop() throws IOException {
+			this.selector = Selector.open();
+			this.newChannels = new ConcurrentLinkedQueue<>();
+			this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+			this.writeBuffers = new BufferPool(WRITE_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+		}
+
+		private void add(SocketChannel channel) {
+			newChannels.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					selector.select();
+				} catch (IOException e) {
+					// The selector is broken, the connections of this loop can't be served anymore
+					return;
+				}
+				registerNewChannels();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Client client = (Client)key.attachment();
+					try {
+						if (key.isReadable()) {
+							read(key, client);
+						} else if (key.isWritable()) {
+							flush(key, client);
+						}
+					} catch (IOException e) {
+						// The client went away, there's nobody left to tell
+						close(key, client);
+					} catch (RuntimeException e) {
+						// Only this client is affected, the others of the loop still have to be served
+						System.err.println("Closing a connection after an error: " + e);
+						close(key, client);
+					}
+				}
+			}
+		}
+
+		private void registerNewChannels() {
+			SocketChannel channel;
+			while ((channel = newChannels.poll()) != null) {
+				Client client = new Client(channel, new PlayerConnection(maze, journal, detachedSessions));
+				SelectionKey key = null;
+				try {
+					channel.configureBlocking(false);
+					channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+					key = channel.register(selector, SelectionKey.OP_READ, client);
+					client.connection.start(client.answer);
+					flush(key, client);
+				} catch (IOException e) {
+					close(key, client);
+				} catch (RuntimeException e) {
+					System.err.println("Closing a connection after an error: " + e);
+					close(key, client);
+				}
+			}
+		}
+
+		private void read(SelectionKey key, Client client) throws IOException {
+			readBuffer.clear();
+			int count = client.channel.read(readBuffer);
+			if (count < 0) {
+				close(key, client);
+				return;
+			}
+
+			readBuffer.flip();
+			while (readBuffer.hasRemaining() && !client.closing) {
+				byte nextByte = readBuffer.get();
+				if (nextByte != '\n') {
+					if (client.lineLength < client.line.length) {
+						client.line[client.lineLength++] = nextByte;
+					}
+					continue;
+				}
+
+				int length = client.lineLength;
+				if (length > 0 && client.line[length - 1] == '\r') {
+					length--;
+				}
+				client.lineLength = 0;
+				client.closing = client.connection.handleLine(client.line, length, client.answer);
+			}
+			flush(key, client);
+		}
+
+		/**
+		 * Sends as much of the answer as the socket takes. If something remains, the loop waits until the socket
+		 * is writable again instead of reading further commands
+		 */
+		private void flush(SelectionKey key, Client client) throws IOException {
+			while (true) {
+				ByteBuffer output = client.output;
+				if (output != null && output.hasRemaining()) {
+					client.channel.write(output);
+					if (output.hasRemaining()) {
+						key.interestOps(SelectionKey.OP_WRITE);
+						return;
+					}
+				}
+
+				if (client.answerPosition == client.answer.length()) {
+					if (output != null) {
+						writeBuffers.release(output);
+						client.output = null;
+					}
+					client.answer.setLength(0);
+					client.answerPosition = 0;
+					if (client.closing) {
+						close(key, client);
+					} else {
+						key.interestOps(SelectionKey.OP_READ);
+					}
+					return;
+				}
+
+				if (output == null) {
+					output = writeBuffers.acquire();
+					client.output = output;
+				}
+				output.clear();
+				client.answerPosition = Utf8.encode(client.answer, client.answerPosition, client.answer.length(), output);
+				output.flip();
+			}
+		}
+
+		private void close(SelectionKey key, Client client) {
+			// An error can happen after the client was already closed, its permit must only be released once
+			if (client.closed) {
+				return;
+			}
+			client.closed = true;
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				client.channel.close();
+			} catch (IOException e) {
+				// The connection is gone anyway
+			}
+			if (client.output != null) {
+				writeBuffers.release(client.output);
+				client.output = null;
+			}
+			client.connection.close();
+			activeSessions.decrementAndGet();
+			sessionPermits.release();
+		}
+	}
+}
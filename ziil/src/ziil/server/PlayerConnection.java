@@ -0,0 +1,115 @@
+package ziil.server;
+
+import ziil.core.Command;
+import ziil.core.Maze;
+import ziil.core.Parser;
+import ziil.core.Session;
+import ziil.journal.Journal;
+
+/**
+ * The protocol of one client, independent of how its bytes are transported.
+ * It turns lines into commands for the client's session, writes the answers followed by the prompt,
+ * records the commands in the journal and lets the client resume a detached session.
+ * A connection must only be used by one thread at a time
+ * @author Manuel
+ *
+ */
+final class PlayerConnection {
+	private static final String RESUME_COMMAND = "resume";
+	private final Journal journal;
+	private final DetachedSessions detachedSessions;
+	private long sessionId;
+	private String resumeToken;
+	private Session session;
+	private boolean hasCommands;
+
+	/**
+	 * Creates a connection with a new session
+	 * @param maze The maze to play in
+	 * @param journal The journal to record the commands in, or null
+	 * @param detachedSessions The sessions that can be resumed
+	 */
+	PlayerConnection(Maze maze, Journal journal, DetachedSessions detachedSessions) {
+		this.journal = journal;
+		this.detachedSessions = detachedSessions;
+		if (journal != null) {
+			this.sessionId = journal.newSessionId();
+			this.resumeToken = DetachedSessions.newResumeToken();
+		}
+		this.session = new Session(maze);
+	}
+
+	/**
+	 * Writes the greeting that is sent as soon as the client has connected
+	 * @param answer The buffer to write to
+	 */
+	void start(StringBuilder answer) {
+		session.printWelcome(answer);
+		if (journal != null) {
+			printResumeToken(answer);
+		}
+		answer.append(GameServer.PROMPT);
+	}
+
+	/**
+	 * Handles one line of the client
+	 * @param line The buffer that holds the line
+	 * @param length The length of the line, without the line break
+	 * @param answer The buffer to write the answer to
+	 * @return True if the game is over and the connection should be closed after the answer
+	 */
+	boolean handleLine(byte[] line, int length, StringBuilder answer) {
+		Command command = Parser.parse(line, 0, length);
+		if (journal != null && RESUME_COMMAND.equals(command.getCommandWord())) {
+			resume(command, answer);
+			answer.append(GameServer.PROMPT);
+			return false;
+		}
+
+		boolean finished = session.processCommand(command, answer);
+		if (journal != null) {
+			journal.record(sessionId, resumeToken, command, session);
+		}
+		hasCommands = true;
+		if (finished) {
+			answer.append("Thank you for playing. Good bye.\n");
+			return true;
+		}
+		answer.append(GameServer.PROMPT);
+		return false;
+	}
+
+	/**
+	 * Keeps an unfinished session around after its client has left, so it can be resumed later
+	 */
+	void close() {
+		if (journal != null && hasCommands && !session.isFinished()) {
+			detachedSessions.detach(sessionId, resumeToken, session);
+		}
+	}
+
+	/**
+	 * Takes a detached session over, so no other client can resume it at the same time
+	 */
+	private void resume(Command command, StringBuilder answer) {
+		String resumedToken = command.getSecondWord();
+		DetachedSessions.Detached resumed = resumedToken != null ? detachedSessions.resume(resumedToken) : null;
+		if (resumed == null) {
+			answer.append("There is no session to resume with this token!\n");
+			return;
+		}
+
+		close();
+		sessionId = resumed.getSessionId();
+		resumeToken = resumedToken;
+		session = resumed.getSession();
+		hasCommands = true;
+		printResumeToken(answer);
+		session.printLocation(answer);
+	}
+
+	private void printResumeToken(StringBuilder answer) {
+		answer.append("Type '").append(RESUME_COMMAND).append(' ').append(resumeToken)
+				.append("' after a reconnect to continue this session.\n");
+	}
+}
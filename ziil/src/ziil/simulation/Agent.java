@@ -0,0 +1,29 @@
+package ziil.simulation;
+
+import java.util.SplittableRandom;
+
+import ziil.core.RelativeDirection;
+import ziil.core.Session;
+
+/**
+ * A strategy that plays the game without a player, by choosing the door to go through in every room.
+ * An agent sees the same things as a player: the room it is in, the doors of this room and the direction
+ * it is facing. Agents are reused for many games, but only by one thread at a time
+ * @author Manuel
+ *
+ */
+public interface Agent {
+	/**
+	 * Prepares for a new game and forgets everything about the previous one
+	 * @param session The session of the new game, in its starting room
+	 * @param random The source of randomness for this game. The same seed plays the same game
+	 */
+	void startGame(Session session, SplittableRandom random);
+
+	/**
+	 * Chooses the door to go through next
+	 * @param session The session of the game, in the room the agent is in
+	 * @return The direction of the door, relative to the direction the player is facing
+	 */
+	RelativeDirection chooseDirection(Session session);
+}
@@ -0,0 +1,53 @@
+package ziil.simulation;
+
+/**
+ * The available agents
+ * @author Manuel
+ *
+ */
+public enum AgentType {
+	WALL_FOLLOWER,
+	RANDOM_WALK,
+	TREMAUX,
+	OPTIMAL;
+
+	/**
+	 * Creates an agent with this strategy
+	 * @return The agent
+	 */
+	public Agent create() {
+		switch (this) {
+			case RANDOM_WALK:
+				return new RandomWalkAgent();
+			case TREMAUX:
+				return new TremauxAgent();
+			case OPTIMAL:
+				return new OptimalAgent();
+			default:
+				return new WallFollowerAgent();
+		}
+	}
+
+	/**
+	 * Gets the type with a name, as returned by {@link #toString()}
+	 * @param name The name of the type, e.g. "tremaux" or "wall-follower"
+	 * @return The type
+	 */
+	public static AgentType fromName(String name) {
+		for (AgentType type : values()) {
+			if (type.toString().equals(name)) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("There is no agent called " + name);
+	}
+
+	/**
+	 * The String representation of this object
+	 * @return The String representation
+	 */
+	@Override
+	public String toString() {
+		return this.name().toLowerCase().replace('_', '-');
+	}
+}
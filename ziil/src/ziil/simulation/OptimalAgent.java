@@ -0,0 +1,51 @@
+package ziil.simulation;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.core.Maze;
+import ziil.core.RelativeDirection;
+import ziil.core.Session;
+import ziil.core.UnweightedPathFinder;
+
+/**
+ * Knows the whole maze and always goes through a door that is on a shortest path to the exit.
+ * The distances come from {@link Maze#getDistanceToEnd(long)}, which is calculated once per maze,
+ * so every step is a few array lookups. Its step counts are the lower bound for all other agents.
+ * Mazes that are too large for the distances (see {@link Maze#hasDistancesToEnd()}) are rejected
+ * @author Manuel
+ *
+ */
+public class OptimalAgent implements Agent {
+	@Override
+	public void startGame(Session session, SplittableRandom random) {
+		// Nothing to forget, the maze doesn't change, but it has to be small enough for the distances
+		Maze maze = session.getMaze();
+		if (!maze.hasDistancesToEnd()) {
+			Grid grid = maze.getGrid();
+			throw new UnsupportedOperationException("A maze of " + grid.getWidth() + "x" + grid.getHeight()
+					+ " has too many rooms for this agent");
+		}
+	}
+
+	@Override
+	public RelativeDirection chooseDirection(Session session) {
+		Maze maze = session.getMaze();
+		Grid grid = maze.getGrid();
+		long cell = session.getCurrentCell();
+		int distance = maze.getDistanceToEnd(cell);
+		if (distance == UnweightedPathFinder.NO_PATH) {
+			throw new IllegalStateException("There is no path from cell " + cell + " to the exit");
+		}
+
+		for (int index = 0; index < 4; index++) {
+			AbsoluteDirection direction = AbsoluteDirection.fromIndex(index);
+			if (grid.hasExit(cell, direction)
+					&& maze.getDistanceToEnd(grid.getNeighbourBehindExit(cell, direction)) == distance - 1) {
+				return RelativeDirection.fromAbsoluteDirections(session.getCurrentDirection(), direction);
+			}
+		}
+		throw new IllegalStateException("There is no door towards the exit in cell " + cell);
+	}
+}
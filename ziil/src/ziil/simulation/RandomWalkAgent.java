@@ -0,0 +1,39 @@
+package ziil.simulation;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.RelativeDirection;
+import ziil.core.Session;
+
+/**
+ * Goes through a random door of every room, including the one it came through
+ * @author Manuel
+ *
+ */
+public class RandomWalkAgent implements Agent {
+	private final AbsoluteDirection[] doors = new AbsoluteDirection[4];
+	private SplittableRandom random;
+
+	@Override
+	public void startGame(Session session, SplittableRandom random) {
+		this.random = random;
+	}
+
+	@Override
+	public RelativeDirection chooseDirection(Session session) {
+		int exits = session.getMaze().getGrid().getExits(session.getCurrentCell());
+		int count = 0;
+		for (int index = 0; index < 4; index++) {
+			AbsoluteDirection direction = AbsoluteDirection.fromIndex(index);
+			if ((exits & direction.getMask()) != 0) {
+				doors[count++] = direction;
+			}
+		}
+
+		if (count == 0) {
+			return RelativeDirection.BACK;
+		}
+		return RelativeDirection.fromAbsoluteDirections(session.getCurrentDirection(), doors[random.nextInt(count)]);
+	}
+}
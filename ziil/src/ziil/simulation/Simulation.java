@@ -0,0 +1,148 @@
+package ziil.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+import ziil.core.Maze;
+import ziil.core.Session;
+import ziil.generator.GeneratorType;
+
+/**
+ * Plays many games with an agent instead of a player, without any console or network I/O.
+ * The games are split into batches that run in parallel on a fork-join pool. Every batch has its own agent
+ * and its own statistics, which are merged at the end, so the games don't share anything but the mazes.
+ * Every game gets a seed that only depends on the seed of the simulation and the number of the game,
+ * so the same simulation has the same result, regardless of the number of threads
+ * @author Manuel
+ *
+ */
+public class Simulation {
+	private static final int GAMES_PER_TASK = 64;
+	private static final long DEFAULT_MAX_STEPS = 10000000;
+	private final LongFunction<Maze> mazes;
+	private final AgentType agentType;
+	private final long maxSteps;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Runs a simulation and prints its statistics. The optional arguments are the name of the agent,
+	 * the size of the maze, the name of the generator (see {@link GeneratorType},
+	 * e.g. "braided" for a maze with loops), the number of games, the seed, "shared" to play all games
+	 * in the same maze or "per-game" to generate a maze for every game, and the maximum number of steps per game
+	 * @param args The command line arguments
+	 */
+	public static void main(String[] args) {
+		AgentType agentType = args.length > 0 ? AgentType.fromName(args[0]) : AgentType.WALL_FOLLOWER;
+		int size = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		GeneratorType generatorType = args.length > 2 ? GeneratorType.fromName(args[2]) : GeneratorType.BACKTRACKER;
+		int games = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+		boolean sharedMaze = args.length <= 5 || "shared".equals(args[5]);
+		long maxSteps = args.length > 6 ? Long.parseLong(args[6]) : DEFAULT_MAX_STEPS;
+
+		LongFunction<Maze> mazes;
+		if (sharedMaze) {
+			Maze maze = new Maze(size, generatorType.create(), seed);
+			mazes = gameSeed -> maze;
+		} else {
+			mazes = gameSeed -> new Maze(size, generatorType.create(), gameSeed);
+		}
+
+		Simulation simulation = new Simulation(mazes, agentType, maxSteps, ForkJoinPool.commonPool());
+		long startTime = System.nanoTime();
+		SimulationResult result = simulation.run(seed, games);
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.println(result);
+		System.out.println(String.format("%.2f s, %.0f games/s, %.0f moves/s",
+				seconds, result.getGames() / seconds, result.getMoves() / seconds));
+	}
+
+	/**
+	 * Creates a simulation
+	 * @param mazes Creates the maze for the seed of a game. It is called once per game, so it should return
+	 * the same maze again if the games should share it, instead of generating it every time
+	 * @param agentType The agent that plays the games
+	 * @param maxSteps The number of steps after which a game is given up
+	 * @param pool The pool that plays the games
+	 */
+	public Simulation(LongFunction<Maze> mazes, AgentType agentType, long maxSteps, ForkJoinPool pool) {
+		if (maxSteps < 1) {
+			throw new IllegalArgumentException("Max steps " + maxSteps + " is too low!");
+		}
+		this.mazes = mazes;
+		this.agentType = agentType;
+		this.maxSteps = maxSteps;
+		this.pool = pool;
+	}
+
+	/**
+	 * Plays a batch of games
+	 * @param seed The seed the seeds of the games are derived from
+	 * @param games The number of games
+	 * @return The statistics of all games
+	 */
+	public SimulationResult run(long seed, int games) {
+		return pool.invoke(new GameTask(seed, 0, games));
+	}
+
+	/**
+	 * Plays one game until the agent finds the exit or runs out of steps
+	 */
+	private void play(Agent agent, long gameSeed, SimulationResult result) {
+		Session session = new Session(mazes.apply(gameSeed));
+		agent.startGame(session, new SplittableRandom(gameSeed));
+		long steps = 0;
+		while (!session.isFinished() && steps < maxSteps) {
+			session.go(agent.chooseDirection(session));
+			steps++;
+		}
+		result.recordGame(steps, session.isFinished());
+	}
+
+	/**
+	 * Derives the seed of a game with the finalizer of SplitMix64, so neighbouring games get unrelated seeds
+	 */
+	private static long getGameSeed(long seed, int game) {
+		long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Plays a range of games, splitting it in halves until it is small enough
+	 */
+	private final class GameTask extends RecursiveTask<SimulationResult> {
+		private static final long serialVersionUID = 1L;
+		private final long seed;
+		private final int firstGame;
+		private final int endGame;
+
+		private GameTask(long seed, int firstGame, int endGame) {
+			this.seed = seed;
+			this.firstGame = firstGame;
+			this.endGame = endGame;
+		}
+
+		@Override
+		protected SimulationResult compute() {
+			if (endGame - firstGame <= GAMES_PER_TASK) {
+				Agent agent = agentType.create();
+				SimulationResult result = new SimulationResult();
+				for (int game = firstGame; game < endGame; game++) {
+					play(agent, getGameSeed(seed, game), result);
+				}
+				return result;
+			}
+
+			int middle = (firstGame + endGame) >>> 1;
+			GameTask secondHalf = new GameTask(seed, middle, endGame);
+			secondHalf.fork();
+			SimulationResult result = new GameTask(seed, firstGame, middle).compute();
+			result.add(secondHalf.join());
+			return result;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package ziil.simulation;
+
+import ziil.util.LongHistogram;
+
+/**
+ * The statistics of a batch of simulated games
+ * @author Manuel
+ *
+ */
+public class SimulationResult {
+	private final LongHistogram steps;
+	private long games;
+	private long unfinishedGames;
+	private long moves;
+
+	SimulationResult() {
+		steps = new LongHistogram();
+	}
+
+	/**
+	 * Gets the number of games that were played
+	 * @return The number of games
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Gets the number of games in which the agent didn't find the exit within the step limit
+	 * @return The number of unfinished games
+	 */
+	public long getUnfinishedGames() {
+		return unfinishedGames;
+	}
+
+	/**
+	 * Gets the number of moves in all games, including the unfinished ones
+	 * @return The number of moves
+	 */
+	public long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Gets the number of steps the agent needed to find the exit, for every finished game
+	 * @return The histogram of the steps
+	 */
+	public LongHistogram getSteps() {
+		return steps;
+	}
+
+	/**
+	 * The String representation of this object
+	 * @return The String representation
+	 */
+	@Override
+	public String toString() {
+		return games + " games, " + unfinishedGames + " unfinished, " + moves + " moves\nSteps per game: " + steps;
+	}
+
+	void recordGame(long stepCount, boolean finished) {
+		games++;
+		moves += stepCount;
+		if (finished) {
+			steps.record(stepCount);
+		} else {
+			unfinishedGames++;
+		}
+	}
+
+	void add(SimulationResult other) {
+		games += other.games;
+		unfinishedGames += other.unfinishedGames;
+		moves += other.moves;
+		steps.add(other.steps);
+	}
+}
@@ -0,0 +1,107 @@
+package ziil.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.core.RelativeDirection;
+import ziil.core.Session;
+
+/**
+ * Solves the maze with Trémaux's algorithm: every passage is marked each time it is walked through.
+ * The agent prefers unmarked passages, turns back when a new passage leads to a room it has already seen
+ * and never walks through a passage that is marked twice. This finds the exit of every maze, even one with loops.
+ * The marks are kept in one byte per door and are reused by the next game in a maze of the same size,
+ * so the maze can't have more than a quarter of {@link Grid#MAX_ARRAY_CELLS} rooms
+ * @author Manuel
+ *
+ */
+public class TremauxAgent implements Agent {
+	private static final int MAX_MARKS = 2;
+	private final AbsoluteDirection[] candidates = new AbsoluteDirection[4];
+	private Grid grid;
+	// The number of times every passage was walked through, indexed by cell * 4 + direction, stored at both ends
+	private byte[] marks;
+	private SplittableRandom random;
+	private boolean moved;
+
+	@Override
+	public void startGame(Session session, SplittableRandom random) {
+		grid = session.getMaze().getGrid();
+		long doorCount = grid.getCellCount() * 4;
+		if (doorCount > Grid.MAX_ARRAY_CELLS) {
+			throw new UnsupportedOperationException("A grid of " + grid.getWidth() + "x" + grid.getHeight()
+					+ " has too many cells for this agent");
+		}
+		if (marks == null || marks.length != doorCount) {
+			marks = new byte[(int)doorCount];
+		} else {
+			Arrays.fill(marks, (byte)0);
+		}
+		this.random = random;
+		moved = false;
+	}
+
+	@Override
+	public RelativeDirection chooseDirection(Session session) {
+		int cell = (int)session.getCurrentCell();
+		AbsoluteDirection facing = session.getCurrentDirection();
+		AbsoluteDirection direction = null;
+
+		if (moved) {
+			AbsoluteDirection back = facing.getOpposite();
+			if (marks[getDoor(cell, back)] == 1 && hasMarkedDoor(cell, back)) {
+				// A new passage led to a known room, so it is part of a loop
+				direction = back;
+			}
+		}
+		if (direction == null) {
+			direction = chooseLeastMarkedDoor(cell);
+		}
+		if (direction == null) {
+			return RelativeDirection.BACK;
+		}
+
+		mark(cell, direction);
+		moved = true;
+		return RelativeDirection.fromAbsoluteDirections(facing, direction);
+	}
+
+	private AbsoluteDirection chooseLeastMarkedDoor(int cell) {
+		for (int markCount = 0; markCount < MAX_MARKS; markCount++) {
+			int count = 0;
+			for (int index = 0; index < 4; index++) {
+				AbsoluteDirection direction = AbsoluteDirection.fromIndex(index);
+				if (grid.hasExit(cell, direction) && marks[getDoor(cell, direction)] == markCount) {
+					candidates[count++] = direction;
+				}
+			}
+			if (count > 0) {
+				return candidates[random.nextInt(count)];
+			}
+		}
+		return null;
+	}
+
+	private boolean hasMarkedDoor(int cell, AbsoluteDirection except) {
+		for (int index = 0; index < 4; index++) {
+			if (index != except.getIndex() && marks[cell * 4 + index] != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void mark(int cell, AbsoluteDirection direction) {
+		int door = getDoor(cell, direction);
+		if (marks[door] < MAX_MARKS) {
+			marks[door]++;
+			marks[getDoor((int)grid.getNeighbourBehindExit(cell, direction), direction.getOpposite())]++;
+		}
+	}
+
+	private static int getDoor(int cell, AbsoluteDirection direction) {
+		return cell * 4 + direction.getIndex();
+	}
+}
@@ -0,0 +1,37 @@
+package ziil.simulation;
+
+import java.util.SplittableRandom;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+import ziil.core.RelativeDirection;
+import ziil.core.Session;
+
+/**
+ * Keeps its right hand on the wall: it turns right whenever it can, otherwise it goes straight, left or back.
+ * This finds the exit of every maze without loops, without remembering anything
+ * @author Manuel
+ *
+ */
+public class WallFollowerAgent implements Agent {
+	private static final RelativeDirection[] PREFERENCES = {
+			RelativeDirection.RIGHT, RelativeDirection.STRAIGHT, RelativeDirection.LEFT, RelativeDirection.BACK };
+
+	@Override
+	public void startGame(Session session, SplittableRandom random) {
+		// The wall is all there is to remember
+	}
+
+	@Override
+	public RelativeDirection chooseDirection(Session session) {
+		Grid grid = session.getMaze().getGrid();
+		long cell = session.getCurrentCell();
+		AbsoluteDirection facing = session.getCurrentDirection();
+		for (RelativeDirection direction : PREFERENCES) {
+			if (grid.hasExit(cell, direction.toAbsoluteDirection(facing))) {
+				return direction;
+			}
+		}
+		return RelativeDirection.BACK;
+	}
+}
@@ -0,0 +1,62 @@
+package ziil.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link LongHistogram} that any number of threads can record to at the same time without locking.
+ * The buckets are updated atomically, the total and the sum are striped, so threads recording different values
+ * rarely contend. Reading is done on a copy, see {@link #snapshot()}
+ * @author Manuel
+ *
+ */
+public class ConcurrentLongHistogram {
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final LongAccumulator min;
+	private final LongAccumulator max;
+
+	/**
+	 * Creates an empty histogram
+	 */
+	public ConcurrentLongHistogram() {
+		counts = new AtomicLongArray(LongHistogram.BUCKET_COUNT);
+		count = new LongAdder();
+		sum = new LongAdder();
+		min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+		max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Counts a value
+	 * @param value The value, at least 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Can't record the negative value " + value);
+		}
+		counts.incrementAndGet(LongHistogram.getBucket(value));
+		count.increment();
+		sum.add(value);
+		min.accumulate(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Copies the values that have been recorded so far. Values that are recorded while the copy is made
+	 * may be missing from some of its statistics
+	 * @return The copy
+	 */
+	public LongHistogram snapshot() {
+		long[] bucketCounts = new long[LongHistogram.BUCKET_COUNT];
+		long total = 0;
+		for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+			bucketCounts[bucket] = counts.get(bucket);
+			total += bucketCounts[bucket];
+		}
+		// The total of the copied buckets keeps the percentiles consistent with the buckets
+		return new LongHistogram(bucketCounts, total, sum.sum(), min.get(), max.get());
+	}
+}
@@ -0,0 +1,91 @@
+package ziil.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A growable first-in-first-out queue of primitive ints, backed by a ring buffer
+ * @author Manuel
+ *
+ */
+public class IntQueue {
+	private static final int INITIAL_CAPACITY = 16;
+	private int[] items;
+	private int head;
+	private int count;
+
+	/**
+	 * Creates an empty queue
+	 */
+	public IntQueue() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty queue
+	 * @param initialCapacity The number of items the queue can hold before it has to grow
+	 */
+	public IntQueue(int initialCapacity) {
+		items = new int[Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1];
+		head = 0;
+		count = 0;
+	}
+
+	/**
+	 * Adds an item at the end of the queue
+	 * @param item The item to add
+	 */
+	public void enqueue(int item) {
+		if (count == items.length) {
+			grow();
+		}
+		items[(head + count) & (items.length - 1)] = item;
+		count++;
+	}
+
+	/**
+	 * Removes the item at the front of the queue
+	 * @return The removed item
+	 */
+	public int dequeue() {
+		if (count == 0) {
+			throw new NoSuchElementException("The queue is empty");
+		}
+		int item = items[head];
+		head = (head + 1) & (items.length - 1);
+		count--;
+		return item;
+	}
+
+	/**
+	 * Check if this queue is empty
+	 * @return True if this queue is empty
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Gets the number of items in this queue
+	 * @return The number of items
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Removes all items, but keeps the allocated capacity
+	 */
+	public void clear() {
+		head = 0;
+		count = 0;
+	}
+
+	private void grow() {
+		int[] newItems = new int[items.length * 2];
+		int firstPart = items.length - head;
+		System.arraycopy(items, head, newItems, 0, firstPart);
+		System.arraycopy(items, 0, newItems, firstPart, head);
+		items = newItems;
+		head = 0;
+	}
+}
@@ -0,0 +1,87 @@
+package ziil.util;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * A growable stack of primitive ints, so pushing and popping doesn't box
+ * @author Manuel
+ *
+ */
+public class IntStack {
+	private static final int INITIAL_CAPACITY = 16;
+	private int[] items;
+	private int count;
+
+	/**
+	 * Creates an empty stack
+	 */
+	public IntStack() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty stack
+	 * @param initialCapacity The number of items the stack can hold before it has to grow
+	 */
+	public IntStack(int initialCapacity) {
+		items = new int[Math.max(1, initialCapacity)];
+		count = 0;
+	}
+
+	/**
+	 * Pushes an item on top of the stack
+	 * @param item The item to push
+	 */
+	public void push(int item) {
+		if (count == items.length) {
+			items = Arrays.copyOf(items, count * 2);
+		}
+		items[count++] = item;
+	}
+
+	/**
+	 * Removes the item on top of the stack
+	 * @return The removed item
+	 */
+	public int pop() {
+		if (count == 0) {
+			throw new EmptyStackException();
+		}
+		return items[--count];
+	}
+
+	/**
+	 * Gets the item on top of the stack without removing it
+	 * @return The item on top
+	 */
+	public int peek() {
+		if (count == 0) {
+			throw new EmptyStackException();
+		}
+		return items[count - 1];
+	}
+
+	/**
+	 * Check if this stack is empty
+	 * @return True if this stack is empty
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Gets the number of items on this stack
+	 * @return The number of items
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Removes all items, but keeps the allocated capacity
+	 */
+	public void clear() {
+		count = 0;
+	}
+}
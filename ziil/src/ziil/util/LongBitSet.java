@@ -0,0 +1,54 @@
+package ziil.util;
+
+/**
+ * A set of bits addressed by longs, so it can have more than 2^31 of them.
+ * The bits are split into pages that are only allocated when one of their bits is set,
+ * so a search that only touches a small part of a huge grid only needs memory for that part
+ * @author Manuel
+ *
+ */
+public class LongBitSet {
+	private static final int PAGE_BITS = 18;
+	private static final int WORDS_PER_PAGE = 1 << (PAGE_BITS - 6);
+	private final long[][] pages;
+
+	/**
+	 * Creates a set where every bit is cleared
+	 * @param bitCount The number of bits
+	 */
+	public LongBitSet(long bitCount) {
+		if (bitCount < 0) {
+			throw new IllegalArgumentException("Bit count " + bitCount + " is negative");
+		}
+		pages = new long[(int)((bitCount + (1L << PAGE_BITS) - 1) >>> PAGE_BITS)][];
+	}
+
+	/**
+	 * Checks if a bit is set
+	 * @param index The index of the bit
+	 * @return True if the bit is set
+	 */
+	public boolean get(long index) {
+		long[] page = pages[(int)(index >>> PAGE_BITS)];
+		return page != null && (page[getWord(index)] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets a bit
+	 * @param index The index of the bit
+	 */
+	public void set(long index) {
+		int pageIndex = (int)(index >>> PAGE_BITS);
+		long[] page = pages[pageIndex];
+		if (page == null) {
+			page = new long[WORDS_PER_PAGE];
+			pages[pageIndex] = page;
+		}
+		// Shifts only use the lowest six bits of the index, which is the bit within the word
+		page[getWord(index)] |= 1L << index;
+	}
+
+	private static int getWord(long index) {
+		return (int)(index >>> 6) & (WORDS_PER_PAGE - 1);
+	}
+}
@@ -0,0 +1,161 @@
+package ziil.util;
+
+/**
+ * Counts non-negative values in buckets of a fixed, logarithmic layout, so recording never allocates
+ * and the memory use doesn't depend on the number or the range of the values.
+ * Values below 32 get a bucket of their own, larger values share a bucket with the values that differ
+ * by less than a sixteenth, so every percentile is accurate to about 6%.
+ * Histograms aren't thread-safe, but histograms of different threads can be merged with {@link #add(LongHistogram)}
+ * @author Manuel
+ *
+ */
+public class LongHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	private final long[] counts;
+	private long count;
+	private long sum;
+	private long min;
+	private long max;
+
+	/**
+	 * Creates an empty histogram
+	 */
+	public LongHistogram() {
+		this(new long[BUCKET_COUNT], 0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Creates a histogram from bucket counts that were collected elsewhere
+	 */
+	LongHistogram(long[] counts, long count, long sum, long min, long max) {
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Counts a value
+	 * @param value The value, at least 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Can't record the negative value " + value);
+		}
+		counts[getBucket(value)]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Adds all values of another histogram to this one
+	 * @param other The histogram to add. It isn't changed
+	 */
+	public void add(LongHistogram other) {
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			counts[bucket] += other.counts[bucket];
+		}
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Gets the number of recorded values
+	 * @return The number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the sum of all recorded values
+	 * @return The sum
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * Gets the smallest recorded value
+	 * @return The smallest value, or 0 if the histogram is empty
+	 */
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * Gets the largest recorded value
+	 * @return The largest value, or 0 if the histogram is empty
+	 */
+	public long getMax() {
+		return count == 0 ? 0 : max;
+	}
+
+	/**
+	 * Gets the average of the recorded values
+	 * @return The average, or 0 if the histogram is empty
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double)sum / count;
+	}
+
+	/**
+	 * Gets the value that a percentage of the recorded values don't exceed
+	 * @param percentile The percentage, from 0 to 100
+	 * @return The highest value of the bucket that contains the percentile, or 0 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile " + percentile + " is not between 0 and 100");
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank) {
+				return Math.min(getHighestValue(bucket), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * The String representation of this object
+	 * @return The String representation
+	 */
+	@Override
+	public String toString() {
+		return "count: " + count + ", mean: " + String.format("%.1f", getMean()) + ", min: " + getMin()
+				+ ", p50: " + getValueAtPercentile(50) + ", p99: " + getValueAtPercentile(99) + ", max: " + getMax();
+	}
+
+	static int getBucket(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int)value;
+		}
+		// The highest bit selects the group, the next bits the bucket within the group
+		int highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = highestBit - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+	}
+
+	private static long getHighestValue(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long firstValue = (long)(bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return firstValue + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,138 @@
+package ziil.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Maps a fixed set of ASCII strings to values without any collision.
+ * When the table is created, seeds are tried until one hashes every key into its own slot,
+ * so a lookup is one hash over the input, one array access and one comparison.
+ * Lookups work directly on a range of characters or bytes, so the input never has to be turned into a String
+ * @author Manuel
+ *
+ * @param <V> The type of the values
+ */
+public class PerfectHashTable<V> {
+	private static final int MAX_SEEDS_PER_SIZE = 10000;
+	private final String[] keys;
+	private final Object[] values;
+	private final int mask;
+	private final int seed;
+
+	/**
+	 * Creates a table
+	 * @param keys The keys. They must be different and only contain ASCII characters
+	 * @param values The value of each key
+	 */
+	public PerfectHashTable(String[] keys, V[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(keys.length + " keys don't match " + values.length + " values");
+		}
+		// Equal keys always collide, no seed could ever separate them
+		if (new HashSet<>(Arrays.asList(keys)).size() != keys.length) {
+			throw new IllegalArgumentException("The keys aren't all different");
+		}
+
+		for (int size = Integer.highestOneBit(Math.max(1, keys.length * 2 - 1)) << 1; size > 0; size <<= 1) {
+			for (int candidate = 1; candidate <= MAX_SEEDS_PER_SIZE; candidate++) {
+				String[] slotKeys = new String[size];
+				Object[] slotValues = new Object[size];
+				if (fill(keys, values, candidate, size - 1, slotKeys, slotValues)) {
+					this.keys = slotKeys;
+					this.values = slotValues;
+					this.mask = size - 1;
+					this.seed = candidate;
+					return;
+				}
+			}
+		}
+		throw new IllegalArgumentException("The keys can't be hashed without collisions");
+	}
+
+	/**
+	 * Looks up a range of characters
+	 * @param characters The characters
+	 * @param start The index of the first character
+	 * @param end The index after the last character
+	 * @return The value, or null if the range isn't a key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(CharSequence characters, int start, int end) {
+		int hash = seed;
+		for (int i = start; i < end; i++) {
+			hash = mix(hash, characters.charAt(i));
+		}
+		int slot = spread(hash) & mask;
+
+		String key = keys[slot];
+		if (key == null || key.length() != end - start) {
+			return null;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != characters.charAt(start + i)) {
+				return null;
+			}
+		}
+		return (V)values[slot];
+	}
+
+	/**
+	 * Looks up a range of ASCII bytes
+	 * @param bytes The bytes
+	 * @param start The index of the first byte
+	 * @param end The index after the last byte
+	 * @return The value, or null if the range isn't a key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(byte[] bytes, int start, int end) {
+		int hash = seed;
+		for (int i = start; i < end; i++) {
+			hash = mix(hash, bytes[i] & 0xFF);
+		}
+		int slot = spread(hash) & mask;
+
+		String key = keys[slot];
+		if (key == null || key.length() != end - start) {
+			return null;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != (bytes[start + i] & 0xFF)) {
+				return null;
+			}
+		}
+		return (V)values[slot];
+	}
+
+	/**
+	 * Looks up a whole string
+	 * @param key The string
+	 * @return The value, or null if the string isn't a key
+	 */
+	public V get(String key) {
+		return get(key, 0, key.length());
+	}
+
+	private static boolean fill(String[] keys, Object[] values, int seed, int mask, String[] slotKeys, Object[] slotValues) {
+		for (int i = 0; i < keys.length; i++) {
+			int hash = seed;
+			for (int j = 0; j < keys[i].length(); j++) {
+				hash = mix(hash, keys[i].charAt(j));
+			}
+			int slot = spread(hash) & mask;
+			if (slotKeys[slot] != null) {
+				return false;
+			}
+			slotKeys[slot] = keys[i];
+			slotValues[slot] = values[i];
+		}
+		return true;
+	}
+
+	private static int mix(int hash, int character) {
+		return (hash ^ character) * 0x01000193;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
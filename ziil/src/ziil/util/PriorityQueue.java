@@ -1,26 +1,34 @@
 package ziil.util;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 
 /**
  * A priority queue. Queues items by their priority
+ * It is backed by an indexed binary heap, so enqueueing, lowering the priority of an item
+ * and dequeueing all take O(log n)
  * @author Manuel
  *
  * @param <E> The type of the items to store
  */
 public class PriorityQueue<E> {
-	private final Map<E, Integer> items;
-	
+	private static final int INITIAL_CAPACITY = 16;
+	private final Map<E, Node<E>> nodes;
+	private Node<E>[] heap;
+	private int count;
+
 	/**
 	 * Creates a new priority queue
 	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public PriorityQueue() {
-		items = new HashMap<>();
+		nodes = new HashMap<>();
+		heap = new Node[INITIAL_CAPACITY];
+		count = 0;
 	}
-	
+
 	/**
 	 * Enqueues an item with a priority
 	 * If the item already is in the queue and has a lower priority, nothing happens
@@ -29,37 +37,127 @@ public class PriorityQueue<E> {
 	 * @param priority The priority of the item
 	 */
 	public void enqueue(E item, int priority) {
-		Integer existingPriority = items.get(item);
-		
-		if (existingPriority == null || existingPriority > priority) {
-			items.put(item, priority);
+		Node<E> existingNode = nodes.get(item);
+
+		if (existingNode == null) {
+			Node<E> node = new Node<>(item, priority);
+			nodes.put(item, node);
+			if (count == heap.length) {
+				heap = Arrays.copyOf(heap, count * 2);
+			}
+			heap[count] = node;
+			node.position = count;
+			count++;
+			siftUp(node.position);
+		} else if (existingNode.priority > priority) {
+			existingNode.priority = priority;
+			siftUp(existingNode.position);
 		}
 	}
-	
+
 	/**
-	 * Dequeue a random item with the lowest priority
-	 * @return The item and its priority
+	 * Dequeue an item with the lowest priority
+	 * The returned entry is the one that was created when the item was enqueued, so this doesn't allocate
+	 * @return The item and its priority, or null if the queue is empty
 	 */
 	public Entry<E, Integer> dequeue() {
-		Optional<Entry<E, Integer>> itemToDequeue = items
-			.entrySet()
-			.stream()
-			.sorted((entry1, entry2) -> Integer.compare(entry1.getValue(), entry2.getValue()))
-			.findFirst();
-		
-		if (!itemToDequeue.isPresent()) {
+		if (count == 0) {
 			return null;
 		}
-		Entry<E, Integer> item = itemToDequeue.get();
-		items.remove(item.getKey());
-		return item;
+
+		Node<E> first = heap[0];
+		count--;
+		Node<E> last = heap[count];
+		heap[count] = null;
+		if (count > 0) {
+			heap[0] = last;
+			last.position = 0;
+			siftDown(0);
+		}
+		nodes.remove(first.item);
+		return first;
 	}
-	
+
 	/**
 	 * Check if this queue is empty
 	 * @return True if this queue is empty
 	 */
 	public boolean isEmpty() {
-		return items.isEmpty();
+		return count == 0;
+	}
+
+	/**
+	 * Gets the number of items in this queue
+	 * @return The number of items
+	 */
+	public int size() {
+		return count;
+	}
+
+	private void siftUp(int position) {
+		Node<E> node = heap[position];
+		while (position > 0) {
+			int parentPosition = (position - 1) >>> 1;
+			Node<E> parent = heap[parentPosition];
+			if (parent.priority <= node.priority) {
+				break;
+			}
+			heap[position] = parent;
+			parent.position = position;
+			position = parentPosition;
+		}
+		heap[position] = node;
+		node.position = position;
+	}
+
+	private void siftDown(int position) {
+		Node<E> node = heap[position];
+		int half = count >>> 1;
+		while (position < half) {
+			int childPosition = 2 * position + 1;
+			Node<E> child = heap[childPosition];
+			int rightPosition = childPosition + 1;
+			if (rightPosition < count && heap[rightPosition].priority < child.priority) {
+				childPosition = rightPosition;
+				child = heap[rightPosition];
+			}
+			if (node.priority <= child.priority) {
+				break;
+			}
+			heap[position] = child;
+			child.position = position;
+			position = childPosition;
+		}
+		heap[position] = node;
+		node.position = position;
+	}
+
+	/**
+	 * An item in the heap, which remembers its own position so its priority can be lowered in place
+	 */
+	private static final class Node<E> implements Entry<E, Integer> {
+		private final E item;
+		private int priority;
+		private int position;
+
+		private Node(E item, int priority) {
+			this.item = item;
+			this.priority = priority;
+		}
+
+		@Override
+		public E getKey() {
+			return item;
+		}
+
+		@Override
+		public Integer getValue() {
+			return priority;
+		}
+
+		@Override
+		public Integer setValue(Integer value) {
+			throw new UnsupportedOperationException("The priority can only be changed by enqueueing the item again");
+		}
 	}
 }
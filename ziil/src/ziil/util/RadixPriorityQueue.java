@@ -0,0 +1,188 @@
+package ziil.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A monotone priority queue for small, non-negative integer priorities, backed by a radix heap.
+ * It has the same contract as {@link PriorityQueue}, with the restriction that an item may never be
+ * enqueued with a lower priority than the last dequeued one. This holds for searches with non-negative
+ * costs such as Dijkstra's algorithm.
+ * Enqueueing takes O(1), dequeueing takes amortized O(log C), where C is the largest priority
+ * @author Manuel
+ *
+ * @param <E> The type of the items to store
+ */
+public class RadixPriorityQueue<E> {
+	private static final int BUCKET_COUNT = Integer.SIZE + 1;
+	private static final int INITIAL_BUCKET_CAPACITY = 4;
+	private final Map<E, Node<E>> nodes;
+	private final Node<E>[][] buckets;
+	private final int[] bucketSizes;
+	private int lastPriority;
+	private int count;
+
+	/**
+	 * Creates a new radix priority queue
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public RadixPriorityQueue() {
+		nodes = new HashMap<>();
+		buckets = new Node[BUCKET_COUNT][];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i] = new Node[INITIAL_BUCKET_CAPACITY];
+		}
+		bucketSizes = new int[BUCKET_COUNT];
+		lastPriority = 0;
+		count = 0;
+	}
+
+	/**
+	 * Enqueues an item with a priority
+	 * If the item already is in the queue and has a lower priority, nothing happens
+	 * If the item already is in the queue and has a higher priority, it will be overwritten with the new value
+	 * @param item The item to enqueue
+	 * @param priority The priority of the item. Must not be lower than the priority of the last dequeued item
+	 */
+	public void enqueue(E item, int priority) {
+		if (priority < lastPriority) {
+			throw new IllegalArgumentException("Priority " + priority + " is lower than the last dequeued priority " + lastPriority);
+		}
+
+		Node<E> existingNode = nodes.get(item);
+		if (existingNode == null) {
+			Node<E> node = new Node<>(item, priority);
+			nodes.put(item, node);
+			add(node);
+			count++;
+		} else if (existingNode.priority > priority) {
+			remove(existingNode);
+			existingNode.priority = priority;
+			add(existingNode);
+		}
+	}
+
+	/**
+	 * Dequeue an item with the lowest priority
+	 * The returned entry is the one that was created when the item was enqueued, so this doesn't allocate
+	 * @return The item and its priority, or null if the queue is empty
+	 */
+	public Entry<E, Integer> dequeue() {
+		if (count == 0) {
+			return null;
+		}
+
+		if (bucketSizes[0] == 0) {
+			redistribute();
+		}
+
+		int last = --bucketSizes[0];
+		Node<E> node = buckets[0][last];
+		buckets[0][last] = null;
+		count--;
+		nodes.remove(node.item);
+		return node;
+	}
+
+	/**
+	 * Check if this queue is empty
+	 * @return True if this queue is empty
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Gets the number of items in this queue
+	 * @return The number of items
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Empties the first non-empty bucket into the lower ones, after moving the last priority to its minimum.
+	 * Every node only ever moves to lower buckets, which gives the amortized bound.
+	 */
+	private void redistribute() {
+		int bucket = 1;
+		while (bucketSizes[bucket] == 0) {
+			bucket++;
+		}
+
+		Node<E>[] nodesToMove = buckets[bucket];
+		int size = bucketSizes[bucket];
+		int minimum = Integer.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			minimum = Math.min(minimum, nodesToMove[i].priority);
+		}
+
+		lastPriority = minimum;
+		bucketSizes[bucket] = 0;
+		for (int i = 0; i < size; i++) {
+			Node<E> node = nodesToMove[i];
+			nodesToMove[i] = null;
+			add(node);
+		}
+	}
+
+	private void add(Node<E> node) {
+		int bucket = getBucket(node.priority);
+		int size = bucketSizes[bucket];
+		if (size == buckets[bucket].length) {
+			buckets[bucket] = Arrays.copyOf(buckets[bucket], size * 2);
+		}
+		buckets[bucket][size] = node;
+		node.bucket = bucket;
+		node.index = size;
+		bucketSizes[bucket] = size + 1;
+	}
+
+	private void remove(Node<E> node) {
+		Node<E>[] bucket = buckets[node.bucket];
+		int last = --bucketSizes[node.bucket];
+		Node<E> lastNode = bucket[last];
+		bucket[node.index] = lastNode;
+		lastNode.index = node.index;
+		bucket[last] = null;
+	}
+
+	private int getBucket(int priority) {
+		if (priority == lastPriority) {
+			return 0;
+		}
+		return Integer.SIZE - Integer.numberOfLeadingZeros(priority ^ lastPriority);
+	}
+
+	/**
+	 * An item in a bucket, which remembers its position so it can be moved when its priority is lowered
+	 */
+	private static final class Node<E> implements Entry<E, Integer> {
+		private final E item;
+		private int priority;
+		private int bucket;
+		private int index;
+
+		private Node(E item, int priority) {
+			this.item = item;
+			this.priority = priority;
+		}
+
+		@Override
+		public E getKey() {
+			return item;
+		}
+
+		@Override
+		public Integer getValue() {
+			return priority;
+		}
+
+		@Override
+		public Integer setValue(Integer value) {
+			throw new UnsupportedOperationException("The priority can only be changed by enqueueing the item again");
+		}
+	}
+}
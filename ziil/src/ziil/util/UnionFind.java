@@ -0,0 +1,75 @@
+package ziil.util;
+
+/**
+ * A disjoint-set forest over the ints 0 to size-1, with union by size and path halving
+ * @author Manuel
+ *
+ */
+public class UnionFind {
+	private final int[] parents;
+	private final int[] sizes;
+
+	/**
+	 * Creates a union-find where every element is in its own set
+	 * @param size The number of elements
+	 */
+	public UnionFind(int size) {
+		parents = new int[size];
+		sizes = new int[size];
+		reset();
+	}
+
+	/**
+	 * Puts every element back in its own set
+	 */
+	public void reset() {
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = i;
+			sizes[i] = 1;
+		}
+	}
+
+	/**
+	 * Finds the representative of the set an element is in
+	 * @param element The element
+	 * @return The representative
+	 */
+	public int find(int element) {
+		while (parents[element] != element) {
+			parents[element] = parents[parents[element]];
+			element = parents[element];
+		}
+		return element;
+	}
+
+	/**
+	 * Merges the sets of two elements
+	 * @param element1 The first element
+	 * @param element2 The second element
+	 * @return True if the elements were in different sets before
+	 */
+	public boolean union(int element1, int element2) {
+		int root1 = find(element1);
+		int root2 = find(element2);
+		if (root1 == root2) {
+			return false;
+		}
+
+		if (sizes[root1] < sizes[root2]) {
+			int swap = root1;
+			root1 = root2;
+			root2 = swap;
+		}
+		parents[root2] = root1;
+		sizes[root1] += sizes[root2];
+		return true;
+	}
+
+	/**
+	 * Gets the number of elements
+	 * @return The number of elements
+	 */
+	public int size() {
+		return parents.length;
+	}
+}
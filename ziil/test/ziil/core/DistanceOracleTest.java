@@ -0,0 +1,109 @@
+package ziil.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ziil.generator.GeneratorType;
+
+class DistanceOracleTest {
+	private static final int PAIR_COUNT = 300;
+
+	@Test
+	void agreesWithTheSearchesOnPerfectMazes() {
+		for (GeneratorType type : GeneratorType.values()) {
+			if (type == GeneratorType.BRAIDED || type == GeneratorType.WEIGHTED || type == GeneratorType.BRAIDED_WEIGHTED) {
+				continue;
+			}
+			for (long seed = 1; seed <= 3; seed++) {
+				Maze maze = new Maze(31, 23, type.create(), seed);
+				DistanceOracle oracle = new DistanceOracle(maze);
+				assertTrue(oracle.isTree(), type + " maze with seed " + seed);
+				assertAgreement(maze, oracle, true, type + " maze with seed " + seed);
+			}
+		}
+	}
+
+	@Test
+	void fallsBackToSearchingInBraidedMazes() {
+		for (long seed = 1; seed <= 3; seed++) {
+			Maze maze = new Maze(30, GeneratorType.BRAIDED.create(), seed);
+			DistanceOracle oracle = new DistanceOracle(maze);
+			assertFalse(oracle.isTree());
+			assertAgreement(maze, oracle, true, "Braided maze with seed " + seed);
+		}
+	}
+
+	@Test
+	void sumsTheDoorWeights() {
+		for (GeneratorType type : new GeneratorType[] { GeneratorType.WEIGHTED, GeneratorType.BRAIDED_WEIGHTED }) {
+			Maze maze = new Maze(25, type.create(), 7);
+			DistanceOracle oracle = new DistanceOracle(maze);
+			assertEquals(type == GeneratorType.WEIGHTED, oracle.isTree());
+			// The breadth-first searches count doors, so they only agree without weights
+			assertAgreement(maze, oracle, false, type + " maze");
+		}
+	}
+
+	@Test
+	void measuresTheDistanceToTheEnd() {
+		Maze maze = new Maze(40, GeneratorType.WILSON.create(), 5);
+		DistanceOracle oracle = new DistanceOracle(maze);
+		Grid grid = maze.getGrid();
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			assertEquals(maze.getDistanceToEnd(cell), oracle.getDistance(maze.getRoom(cell), maze.getEndRoom()));
+		}
+		assertEquals(0, oracle.getDistance(maze.getEndRoom(), maze.getEndRoom()));
+	}
+
+	@Test
+	void rejectsRoomsOfOtherMazes() {
+		Maze maze = new Maze(10, GeneratorType.PRIM.create(), 1);
+		Maze otherMaze = new Maze(10, GeneratorType.PRIM.create(), 1);
+		DistanceOracle oracle = new DistanceOracle(maze);
+		assertThrows(IllegalArgumentException.class,
+				() -> oracle.getDistance(maze.getStartingRoom(), otherMaze.getEndRoom()));
+	}
+
+	/**
+	 * Compares the oracle with every search on random pairs of rooms
+	 * @param unweighted True if the breadth-first searches have to agree as well
+	 */
+	private static void assertAgreement(Maze maze, DistanceOracle oracle, boolean unweighted, String description) {
+		Grid grid = maze.getGrid();
+		Random random = new Random(maze.getSeed());
+		List<RoomPair> pairs = new ArrayList<>();
+		for (int i = 0; i < PAIR_COUNT; i++) {
+			Room source = maze.getRoom((long)random.nextInt(grid.getArrayCellCount()));
+			Room destination = maze.getRoom((long)random.nextInt(grid.getArrayCellCount()));
+			pairs.add(new RoomPair(source, destination));
+		}
+
+		UnweightedPathFinder breadthFirst = new UnweightedPathFinder(maze);
+		PathFinder pathFinder = new PathFinder();
+		int[] batchDistances = PathFinder.distances(pairs);
+		for (int i = 0; i < pairs.size(); i++) {
+			RoomPair pair = pairs.get(i);
+			int distance = oracle.getDistance(pair.getSource(), pair.getDestination());
+			String message = description + ", " + pair;
+			for (SearchStrategy strategy : SearchStrategy.values()) {
+				Optional<Integer> pathLength = pathFinder.calculateShortestPathLength(pair.getSource(), pair.getDestination(),
+						strategy);
+				assertEquals(Optional.of(distance), pathLength, message + ", " + strategy);
+			}
+			if (unweighted) {
+				assertEquals(distance, breadthFirst.calculateShortestPathLength(pair.getSource(), pair.getDestination()),
+						message + ", breadth-first");
+				assertEquals(distance, batchDistances[i], message + ", batch");
+			}
+		}
+	}
+}
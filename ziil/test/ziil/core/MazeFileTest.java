@@ -0,0 +1,130 @@
+package ziil.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ziil.generator.GeneratorType;
+
+class MazeFileTest {
+	private static final int HEADER_SIZE = 64;
+	@TempDir
+	Path directory;
+
+	@Test
+	void loadsASavedMaze() throws IOException {
+		Maze maze = new Maze(37, 21, GeneratorType.KRUSKAL.create(), 11);
+		Path file = directory.resolve("maze.bin");
+		maze.save(file);
+
+		assertSameMaze(maze, Maze.load(file));
+		assertEquals(HEADER_SIZE + 37 * 21, Files.size(file));
+	}
+
+	@Test
+	void loadsTheDoorWeights() throws IOException {
+		Maze maze = new Maze(20, 30, GeneratorType.BRAIDED_WEIGHTED.create(), 5);
+		Path file = directory.resolve("maze.bin");
+		maze.save(file);
+
+		Maze loaded = Maze.load(file);
+		assertSameMaze(maze, loaded);
+		assertTrue(loaded.getGrid().hasDoorWeights());
+		Grid grid = maze.getGrid();
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			for (AbsoluteDirection direction : AbsoluteDirection.values()) {
+				if (grid.getNeighbour(cell, direction) >= 0) {
+					assertEquals(grid.getDoorWeight(cell, direction), loaded.getGrid().getDoorWeight(cell, direction));
+				}
+			}
+		}
+	}
+
+	@Test
+	void loadsAMappedMaze() throws IOException {
+		Path file = directory.resolve("mapped.bin");
+		Maze maze = Maze.createMapped(file, 50, 40, 3);
+
+		assertSameMaze(maze, Maze.load(file));
+		assertEquals(maze.getDistanceToEnd(0), Maze.load(file).getDistanceToEnd(0));
+	}
+
+	@Test
+	void loadsVersion1Files() throws IOException {
+		Maze maze = new Maze(16, GeneratorType.BACKTRACKER.create(), 9);
+		Path file = directory.resolve("maze.bin");
+		maze.save(file);
+		byte[] cells = Arrays.copyOfRange(Files.readAllBytes(file), HEADER_SIZE, HEADER_SIZE + 16 * 16);
+
+		// Version 1 had a single size instead of the width and the height, everything after it moves up by four bytes
+		CRC32 checksum = new CRC32();
+		checksum.update(cells, 0, cells.length);
+		ByteBuffer version1 = ByteBuffer.allocate(HEADER_SIZE + cells.length);
+		version1.putInt(0x5A49494C).putShort((short)1).putShort((short)0).putInt(16).putLong(9);
+		version1.putInt(0).putInt(0).putInt(15).putInt(15).putLong(checksum.getValue());
+		version1.position(HEADER_SIZE);
+		version1.put(cells);
+		Path version1File = directory.resolve("version1.bin");
+		Files.write(version1File, version1.array());
+
+		assertSameMaze(maze, Maze.load(version1File));
+	}
+
+	@Test
+	void rejectsACorruptedFile() throws IOException {
+		Path file = directory.resolve("maze.bin");
+		new Maze(10, GeneratorType.PRIM.create(), 1).save(file);
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[HEADER_SIZE + 17] ^= 1;
+		Files.write(file, bytes);
+
+		IOException exception = assertThrows(IOException.class, () -> Maze.load(file));
+		assertTrue(exception.getMessage().contains("checksum"), exception.getMessage());
+	}
+
+	@Test
+	void rejectsATruncatedFile() throws IOException {
+		Path file = directory.resolve("maze.bin");
+		new Maze(10, GeneratorType.PRIM.create(), 1).save(file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+		assertThrows(IOException.class, () -> Maze.load(file));
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path file = directory.resolve("other.bin");
+		Files.write(file, new byte[HEADER_SIZE + 100]);
+		assertThrows(IOException.class, () -> Maze.load(file));
+
+		Files.write(file, new byte[10]);
+		assertThrows(IOException.class, () -> Maze.load(file));
+	}
+
+	private static void assertSameMaze(Maze expected, Maze actual) {
+		Grid expectedGrid = expected.getGrid();
+		Grid actualGrid = actual.getGrid();
+		assertEquals(expectedGrid.getWidth(), actualGrid.getWidth());
+		assertEquals(expectedGrid.getHeight(), actualGrid.getHeight());
+		assertEquals(expected.getSeed(), actual.getSeed());
+		assertEquals(expected.getStartingRoom().getCell(), actual.getStartingRoom().getCell());
+		assertEquals(expected.getEndRoom().getCell(), actual.getEndRoom().getCell());
+		assertTrue(actualGrid.isFrozen());
+		assertEquals(expectedGrid.hasDoorWeights(), actualGrid.hasDoorWeights());
+		for (long cell = 0; cell < expectedGrid.getCellCount(); cell++) {
+			assertEquals(expectedGrid.getExits(cell), actualGrid.getExits(cell), "Exits of cell " + cell);
+			assertEquals(expectedGrid.getDescriptionId(cell), actualGrid.getDescriptionId(cell), "Description of cell " + cell);
+		}
+	}
+}
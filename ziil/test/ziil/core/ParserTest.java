@@ -0,0 +1,91 @@
+package ziil.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import ziil.io.LineReader;
+
+class ParserTest {
+	private static final String[] LINES = { "go left", "  go   straight  ", "go\tback", "quit", "help me", "evaluate",
+			"GO left", "go", "go nowhere", "walk left", "go left now", "", "   ", "gö rückwärts", "go left",
+			"\u2003go right", "\u001Fgo\u000Bback" };
+
+	@Test
+	void parsesKnownCommands() {
+		Command command = Parser.parse("go right");
+		assertEquals(CommandWord.GO, command.getWord());
+		assertEquals(RelativeDirection.RIGHT, command.getDirection());
+		assertEquals("go", command.getCommandWord());
+		assertEquals("right", command.getSecondWord());
+		// Valid commands are shared, so parsing them doesn't allocate
+		assertSame(command, Parser.parse("  go\tright extra"));
+
+		assertEquals(CommandWord.QUIT, Parser.parse("quit").getWord());
+		assertNull(Parser.parse("quit").getSecondWord());
+	}
+
+	@Test
+	void keepsTheWordsOfInvalidInput() {
+		Command command = Parser.parse("walk left");
+		assertEquals(CommandWord.UNKNOWN, command.getWord());
+		assertEquals("walk", command.getCommandWord());
+		assertEquals(RelativeDirection.LEFT, command.getDirection());
+
+		command = Parser.parse("go nowhere");
+		assertEquals(CommandWord.GO, command.getWord());
+		assertEquals("nowhere", command.getSecondWord());
+		assertNull(command.getDirection());
+
+		command = Parser.parse("");
+		assertEquals(CommandWord.UNKNOWN, command.getWord());
+		assertNull(command.getCommandWord());
+	}
+
+	@Test
+	void bytesAndCharactersAgreeWithSplittingTheLine() {
+		for (String line : LINES) {
+			Command expected = splitIntoCommand(line);
+			assertSameCommand(expected, Parser.parse(line), line);
+			byte[] bytes = ("xx" + line).getBytes(StandardCharsets.UTF_8);
+			assertSameCommand(expected, Parser.parse(bytes, 2, bytes.length - 2), line);
+		}
+	}
+
+	@Test
+	void readsCommandsLineByLine() throws IOException {
+		byte[] input = "go left\r\nhelp\n\nquit".getBytes(StandardCharsets.UTF_8);
+		Parser parser = new Parser(new LineReader(Channels.newChannel(new ByteArrayInputStream(input))));
+		assertSame(Parser.parse("go left"), parser.getCommand());
+		assertSame(Parser.parse("help"), parser.getCommand());
+		assertSame(Parser.parse(""), parser.getCommand());
+		assertSame(Parser.parse("quit"), parser.getCommand());
+		assertNull(parser.getCommand());
+	}
+
+	/**
+	 * Splits a line the way the original parser did, with a scanner that reads the first two words
+	 */
+	private static Command splitIntoCommand(String line) {
+		try (Scanner tokenizer = new Scanner(line)) {
+			String firstWord = tokenizer.hasNext() ? tokenizer.next() : null;
+			String secondWord = tokenizer.hasNext() ? tokenizer.next() : null;
+			return new Command(firstWord, secondWord);
+		}
+	}
+
+	private static void assertSameCommand(Command expected, Command actual, String line) {
+		assertEquals(expected.getWord(), actual.getWord(), line);
+		assertEquals(expected.getDirection(), actual.getDirection(), line);
+		assertEquals(expected.getCommandWord(), actual.getCommandWord(), line);
+		assertEquals(expected.getSecondWord(), actual.getSecondWord(), line);
+	}
+}
@@ -0,0 +1,111 @@
+package ziil.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Grid;
+
+class ParallelGeneratorTest {
+	@Test
+	void sameSeedGivesTheSameMazeOnAnyNumberOfCores() {
+		ForkJoinPool singleCore = new ForkJoinPool(1);
+		ForkJoinPool fourCores = new ForkJoinPool(4);
+		try {
+			for (long seed = 1; seed <= 5; seed++) {
+				Grid expected = generate(new ParallelGenerator(16, singleCore), 100, 70, seed);
+				Grid actual = generate(new ParallelGenerator(16, fourCores), 100, 70, seed);
+				Grid again = generate(new ParallelGenerator(16, fourCores), 100, 70, seed);
+				for (long cell = 0; cell < expected.getCellCount(); cell++) {
+					assertEquals(expected.getExits(cell), actual.getExits(cell), "Cell " + cell + " with seed " + seed);
+					assertEquals(expected.getExits(cell), again.getExits(cell), "Cell " + cell + " with seed " + seed);
+				}
+			}
+		} finally {
+			singleCore.shutdown();
+			fourCores.shutdown();
+		}
+	}
+
+	@Test
+	void differentSeedsGiveDifferentMazes() {
+		Grid grid1 = generate(new ParallelGenerator(), 64, 64, 1);
+		Grid grid2 = generate(new ParallelGenerator(), 64, 64, 2);
+		boolean same = true;
+		for (long cell = 0; cell < grid1.getCellCount() && same; cell++) {
+			same = grid1.getExits(cell) == grid2.getExits(cell);
+		}
+		assertFalse(same);
+	}
+
+	@Test
+	void stitchesThePartsIntoAPerfectMaze() {
+		// Tile sizes that don't divide the grid leave smaller tiles at the borders
+		int[][] sizes = { { 1, 1 }, { 1, 50 }, { 50, 1 }, { 37, 41 }, { 300, 20 } };
+		for (int tileSize : new int[] { 1, 3, 16, 256 }) {
+			for (int[] size : sizes) {
+				Grid grid = generate(new ParallelGenerator(tileSize, ForkJoinPool.commonPool()), size[0], size[1], tileSize);
+				assertPerfect(grid, "Tile size " + tileSize + ", " + size[0] + "x" + size[1]);
+			}
+		}
+	}
+
+	@Test
+	void everyPerfectGeneratorConnectsAllCells() {
+		for (GeneratorType type : GeneratorType.values()) {
+			if (type == GeneratorType.BRAIDED || type == GeneratorType.BRAIDED_WEIGHTED) {
+				continue;
+			}
+			assertPerfect(generate(type.create(), 45, 33, 3), type.toString());
+		}
+	}
+
+	@Test
+	void rejectsEmptyTiles() {
+		assertThrows(IllegalArgumentException.class, () -> new ParallelGenerator(0, ForkJoinPool.commonPool()));
+	}
+
+	private static Grid generate(MazeGenerator generator, int width, int height, long seed) {
+		Grid grid = new Grid(width, height);
+		generator.generate(grid, new SplittableRandom(seed));
+		return grid;
+	}
+
+	/**
+	 * Checks that every cell can be reached from the first one, through exactly cells - 1 doors
+	 */
+	private static void assertPerfect(Grid grid, String description) {
+		long doorCount = 0;
+		for (long cell = 0; cell < grid.getCellCount(); cell++) {
+			doorCount += Integer.bitCount(grid.getExits(cell));
+		}
+		assertEquals(grid.getCellCount() - 1, doorCount / 2, description);
+
+		boolean[] reached = new boolean[grid.getArrayCellCount()];
+		ArrayDeque<Long> cellsToVisit = new ArrayDeque<>();
+		reached[0] = true;
+		cellsToVisit.add(0L);
+		int reachedCount = 1;
+		while (!cellsToVisit.isEmpty()) {
+			long cell = cellsToVisit.poll();
+			for (AbsoluteDirection direction : AbsoluteDirection.values()) {
+				if (grid.hasExit(cell, direction)) {
+					long neighbour = grid.getNeighbourBehindExit(cell, direction);
+					if (!reached[(int)neighbour]) {
+						reached[(int)neighbour] = true;
+						reachedCount++;
+						cellsToVisit.add(neighbour);
+					}
+				}
+			}
+		}
+		assertEquals(grid.getCellCount(), reachedCount, description);
+	}
+}
@@ -0,0 +1,240 @@
+package ziil.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ziil.core.AbsoluteDirection;
+import ziil.core.Command;
+import ziil.core.Maze;
+import ziil.core.Parser;
+import ziil.core.Session;
+import ziil.generator.RecursiveBacktrackerGenerator;
+
+class JournalTest {
+	private static final String[] WALK = { "go left", "go straight", "go right", "go back", "go straight", "help", "go left" };
+	@TempDir
+	Path directory;
+	private Maze maze;
+	// The sessions as they were played, by their id
+	private Map<Long, Session> played;
+
+	@BeforeEach
+	void createMaze() {
+		maze = new Maze(12, new RecursiveBacktrackerGenerator(), 42);
+		played = new HashMap<>();
+	}
+
+	@Test
+	void recoversUnfinishedSessionsFromTheLog() throws IOException {
+		long finishedId;
+		try (Journal journal = open()) {
+			play(journal, journal.newSessionId(), "token-a", 5);
+			play(journal, journal.newSessionId(), "token-b", 20);
+			finishedId = journal.newSessionId();
+			play(journal, finishedId, null, 3);
+			record(journal, finishedId, null, "quit");
+		}
+
+		try (Journal journal = open()) {
+			assertRecovered(journal, finishedId);
+			assertEquals("token-a", journal.getResumeToken(0));
+			assertEquals("token-b", journal.getResumeToken(1));
+			assertTrue(journal.newSessionId() > finishedId);
+		}
+	}
+
+	@Test
+	void recoversSessionsFromTheSnapshotAndTheLogAfterIt() throws IOException {
+		try (Journal journal = open()) {
+			play(journal, journal.newSessionId(), "token-a", 5);
+			play(journal, journal.newSessionId(), "token-b", 8);
+			journal.snapshot();
+			play(journal, 0, "ignored", 6);
+			play(journal, journal.newSessionId(), "token-c", 4);
+		}
+
+		try (Journal journal = open()) {
+			assertRecovered(journal, -1);
+			assertEquals("token-a", journal.getResumeToken(0));
+			assertEquals("token-c", journal.getResumeToken(2));
+		}
+	}
+
+	@Test
+	void snapshotReplacesTheOlderSegments() throws IOException {
+		try (Journal journal = open()) {
+			play(journal, journal.newSessionId(), "token", 5);
+			journal.snapshot();
+			journal.snapshot();
+		}
+
+		long segments;
+		try (Stream<Path> files = Files.list(directory)) {
+			segments = files.filter(file -> CommandLog.getSegment(file) >= 0).count();
+		}
+		// Only the segment the last snapshot rolled to is left
+		assertEquals(1, segments);
+		try (Journal journal = open()) {
+			assertRecovered(journal, -1);
+		}
+	}
+
+	@Test
+	void forgottenSessionsLeaveTheSnapshot() throws IOException {
+		try (Journal journal = open()) {
+			play(journal, journal.newSessionId(), "token-a", 5);
+			play(journal, journal.newSessionId(), "token-b", 5);
+			journal.forget(0);
+			journal.snapshot();
+		}
+
+		try (Journal journal = open()) {
+			assertEquals(1, journal.getRecoveredSessions().size());
+			assertTrue(journal.getRecoveredSessions().containsKey(1L));
+			assertNull(journal.getResumeToken(0));
+		}
+	}
+
+	@Test
+	void ignoresATornRecordAtTheEndOfTheLog() throws IOException {
+		try (Journal journal = open()) {
+			play(journal, journal.newSessionId(), "token", 5);
+		}
+		Path segment = CommandLog.getSegmentFile(directory, 0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			// Cut the last record in half, as a crash during the write would
+			channel.truncate(channel.size() - 10);
+		}
+		Session beforeLastCommand = new Session(maze);
+		StringBuilder ignoredOutput = new StringBuilder();
+		for (int i = 0; i < 4; i++) {
+			beforeLastCommand.processCommand(Parser.parse(WALK[i % WALK.length]), ignoredOutput);
+		}
+		played.put(0L, beforeLastCommand);
+
+		try (Journal journal = open()) {
+			assertRecovered(journal, -1);
+		}
+	}
+
+	@Test
+	void readsVersion1Snapshots() throws IOException {
+		writeSnapshot((short)1, 7, 30, AbsoluteDirection.EAST);
+		try (Journal journal = open()) {
+			Session session = journal.getRecoveredSessions().get(7L);
+			assertEquals(30, session.getCurrentCell());
+			assertEquals(AbsoluteDirection.EAST, session.getCurrentDirection());
+			assertNull(journal.getResumeToken(7));
+			assertEquals(8, journal.newSessionId());
+		}
+	}
+
+	@Test
+	void readsVersion2Snapshots() throws IOException {
+		writeSnapshot((short)2, 3, 100, AbsoluteDirection.SOUTH);
+		try (Journal journal = open()) {
+			Session session = journal.getRecoveredSessions().get(3L);
+			assertEquals(100, session.getCurrentCell());
+			assertEquals(AbsoluteDirection.SOUTH, session.getCurrentDirection());
+			// Rewriting it as the current version keeps the session
+			journal.snapshot();
+		}
+		try (Journal journal = open()) {
+			assertEquals(100, journal.getRecoveredSessions().get(3L).getCurrentCell());
+		}
+	}
+
+	@Test
+	void rejectsTheJournalOfAnotherMaze() throws IOException {
+		try (Journal journal = open()) {
+			play(journal, journal.newSessionId(), "token", 5);
+			journal.snapshot();
+		}
+		Maze otherMaze = new Maze(12, new RecursiveBacktrackerGenerator(), 43);
+		assertThrows(IOException.class, () -> new Journal(directory, otherMaze, SyncPolicy.NEVER, 0));
+	}
+
+	private Journal open() throws IOException {
+		return new Journal(directory, maze, SyncPolicy.EVERY_BATCH, 0);
+	}
+
+	/**
+	 * Plays a number of commands in a session, starting a new one if it hasn't been played yet
+	 */
+	private void play(Journal journal, long sessionId, String resumeToken, int commandCount) {
+		for (int i = 0; i < commandCount; i++) {
+			record(journal, sessionId, resumeToken, WALK[i % WALK.length]);
+		}
+	}
+
+	private void record(Journal journal, long sessionId, String resumeToken, String line) {
+		Session session = played.computeIfAbsent(sessionId, id -> new Session(maze));
+		Command command = Parser.parse(line);
+		session.processCommand(command, new StringBuilder());
+		journal.record(sessionId, resumeToken, command, session);
+	}
+
+	private void assertRecovered(Journal journal, long finishedId) {
+		Map<Long, Session> recovered = journal.getRecoveredSessions();
+		for (Map.Entry<Long, Session> entry : played.entrySet()) {
+			Session session = entry.getValue();
+			if (entry.getKey() == finishedId) {
+				assertTrue(session.isFinished());
+				assertFalse(recovered.containsKey(finishedId));
+				continue;
+			}
+			Session recoveredSession = recovered.get(entry.getKey());
+			assertEquals(session.getCurrentCell(), recoveredSession.getCurrentCell(), "Cell of session " + entry.getKey());
+			assertEquals(session.getCurrentDirection(), recoveredSession.getCurrentDirection(),
+					"Direction of session " + entry.getKey());
+		}
+		assertEquals(played.size() - (finishedId >= 0 ? 1 : 0), recovered.size());
+	}
+
+	/**
+	 * Writes a snapshot of an older version with a single session, as those versions wrote it
+	 */
+	private void writeSnapshot(short version, long sessionId, long cell, AbsoluteDirection direction) throws IOException {
+		CRC32 checksum = new CRC32();
+		try (OutputStream fileOutput = Files.newOutputStream(directory.resolve("snapshot.bin"))) {
+			DataOutputStream output = new DataOutputStream(new CheckedOutputStream(fileOutput, checksum));
+			output.writeInt(0x5A534E50);
+			output.writeShort(version);
+			output.writeShort(0);
+			output.writeLong(maze.getSeed());
+			output.writeLong(0);
+			output.writeLong(sessionId + 1);
+			output.writeInt(1);
+			output.writeLong(sessionId);
+			output.writeLong(1);
+			if (version == 1) {
+				output.writeInt((int)cell);
+			} else {
+				output.writeLong(cell);
+			}
+			output.writeByte(direction.getIndex());
+			output.flush();
+			output.writeLong(checksum.getValue());
+		}
+	}
+}
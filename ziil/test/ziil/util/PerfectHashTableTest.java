@@ -0,0 +1,52 @@
+package ziil.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class PerfectHashTableTest {
+	@Test
+	void findsEveryKey() {
+		String[] keys = new String[200];
+		Integer[] values = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "key" + i;
+			values[i] = i;
+		}
+		PerfectHashTable<Integer> table = new PerfectHashTable<>(keys, values);
+
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(values[i], table.get(keys[i]));
+			String padded = "  " + keys[i] + " ";
+			assertEquals(values[i], table.get(padded, 2, 2 + keys[i].length()));
+			byte[] bytes = padded.getBytes(StandardCharsets.US_ASCII);
+			assertEquals(values[i], table.get(bytes, 2, 2 + keys[i].length()));
+		}
+	}
+
+	@Test
+	void returnsNullForOtherStrings() {
+		PerfectHashTable<String> table = new PerfectHashTable<>(new String[] { "go", "quit", "help" },
+				new String[] { "GO", "QUIT", "HELP" });
+
+		for (String other : new String[] { "", "g", "goo", "Go", "hel", "helpp", "quiz", "evaluate", "gö" }) {
+			assertNull(table.get(other), other);
+			byte[] bytes = other.getBytes(StandardCharsets.UTF_8);
+			assertNull(table.get(bytes, 0, bytes.length), other);
+		}
+		// A range of a longer string only matches if it is the key itself
+		assertNull(table.get("help", 0, 3));
+		assertEquals("QUIT", table.get("a quit", 2, 6));
+	}
+
+	@Test
+	void rejectsInvalidKeys() {
+		assertThrows(IllegalArgumentException.class, () -> new PerfectHashTable<>(new String[] { "a", "b" }, new String[] { "A" }));
+		assertThrows(IllegalArgumentException.class,
+				() -> new PerfectHashTable<>(new String[] { "same", "same" }, new String[] { "A", "B" }));
+	}
+}